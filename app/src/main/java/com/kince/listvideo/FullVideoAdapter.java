@@ -50,6 +50,10 @@ public class FullVideoAdapter extends RecyclerView.Adapter<FullVideoAdapter.Full
         return mVideoList.size();
     }
 
+    public VideoBean getItem(int position) {
+        return mVideoList.get(position);
+    }
+
     class FullVideoViewHolder extends RecyclerView.ViewHolder {
         AbsVideoPlayerView mPlayerView;
 
@@ -6,21 +6,63 @@ import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.PagerSnapHelper;
 import android.support.v7.widget.RecyclerView;
 
+import com.kince.listvideo.player.autoplay.FlingPlaybackGate;
 import com.kince.listvideo.player.player.VideoPlayerManager;
+import com.kince.listvideo.player.preload.VideoPreloader;
 
 public class FullVideoListActivity extends AppCompatActivity {
 
     RecyclerView mRecyclerView;
+    VideoPreloader mVideoPreloader;
+    FlingPlaybackGate mFlingPlaybackGate;
+    boolean mScrollForward = true;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_full_video_list);
         mRecyclerView = findViewById(R.id.recyclerview);
-        mRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        mRecyclerView.setLayoutManager(layoutManager);
         PagerSnapHelper snapHelper = new PagerSnapHelper();
         snapHelper.attachToRecyclerView(mRecyclerView);
-        mRecyclerView.setAdapter(new FullVideoAdapter(this));
+        final FullVideoAdapter adapter = new FullVideoAdapter(this);
+        mRecyclerView.setAdapter(adapter);
+
+        mVideoPreloader = new VideoPreloader(new VideoPreloader.UrlProvider() {
+            @Override
+            public int getCount() {
+                return adapter.getItemCount();
+            }
+
+            @Override
+            public String getUrl(int position) {
+                return adapter.getItem(position).getVideoUrl();
+            }
+        });
+        //在SnapHelper之后关联，按SnapHelper的目标位置预加载
+        mFlingPlaybackGate = new FlingPlaybackGate();
+        mFlingPlaybackGate.setPreloader(mVideoPreloader);
+        mFlingPlaybackGate.attach(mRecyclerView);
+        mRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    int position = layoutManager.findFirstCompletelyVisibleItemPosition();
+                    if (position != RecyclerView.NO_POSITION) {
+                        mVideoPreloader.onPositionChanged(position, mScrollForward);
+                    }
+                }
+            }
+
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy != 0) {
+                    mScrollForward = dy > 0;
+                }
+            }
+        });
+        mVideoPreloader.onPositionChanged(0, true);
     }
 
     @Override
@@ -38,6 +80,8 @@ public class FullVideoListActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        mFlingPlaybackGate.detach();
+        mVideoPreloader.release();
         VideoPlayerManager.getInstance().release();
     }
 
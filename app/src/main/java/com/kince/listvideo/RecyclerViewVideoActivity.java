@@ -6,6 +6,7 @@ import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 
+import com.kince.listvideo.player.autoplay.AutoPlayCoordinator;
 import com.kince.listvideo.player.player.VideoPlayerManager;
 
 /**
@@ -15,6 +16,7 @@ import com.kince.listvideo.player.player.VideoPlayerManager;
 public class RecyclerViewVideoActivity extends AppCompatActivity {
 
     RecyclerView mRecyclerView;
+    AutoPlayCoordinator mAutoPlayCoordinator;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -24,6 +26,8 @@ public class RecyclerViewVideoActivity extends AppCompatActivity {
 
         mRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         mRecyclerView.setAdapter(new VideoAdapter(this));
+        mAutoPlayCoordinator = new AutoPlayCoordinator();
+        mAutoPlayCoordinator.attach(mRecyclerView);
     }
 
     @Override
@@ -41,6 +45,7 @@ public class RecyclerViewVideoActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        mAutoPlayCoordinator.detach();
         VideoPlayerManager.getInstance().release();
     }
 
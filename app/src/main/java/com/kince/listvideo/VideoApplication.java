@@ -20,6 +20,7 @@ public class VideoApplication extends Application {
                         .buildPlayerFactory(new ExoPlayerFactory(this))
                         .enableSmallWindowPlay()
                         .enableCache(true)
+                        .playerPoolSize(2)
                         .enableLog(true)
                         .build()
         );
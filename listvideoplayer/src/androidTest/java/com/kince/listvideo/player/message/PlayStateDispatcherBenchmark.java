@@ -0,0 +1,121 @@
+package com.kince.listvideo.player.message;
+
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Observable;
+import java.util.Observer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 对比{@link Observable}广播与{@link PlayStateDispatcher}按hash投递的开销，
+ * 结果按观察者（即已attach的播放器视图）数量输出到logcat，TAG为PlayStateDispatcher
+ */
+@RunWith(AndroidJUnit4.class)
+public class PlayStateDispatcherBenchmark {
+
+    private static final String TAG = "PlayStateDispatcher";
+    private static final int[] OBSERVER_COUNTS = {1, 10, 50, 100};
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 20000;
+    private static final String URL = "http://example.com/video.mp4";
+
+    @Test
+    public void dispatchCostByObserverCount() throws Exception {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (int count : OBSERVER_COUNTS) {
+                    long observableNs = benchmarkObservable(count);
+                    long dispatcherNs = benchmarkDispatcher(count);
+                    Log.i(TAG, String.format("observers=%d, Observable=%dns/event, PlayStateDispatcher=%dns/event",
+                            count, observableNs, dispatcherNs));
+                }
+            }
+        });
+    }
+
+    private static long benchmarkObservable(int count) {
+        BroadcastObservable observable = new BroadcastObservable();
+        CountingObserver[] observers = new CountingObserver[count];
+        for (int i = 0; i < count; i++) {
+            observers[i] = new CountingObserver(i);
+            observable.addObserver(observers[i]);
+        }
+        for (int i = 0; i < WARMUP; i++) {
+            observable.send(new UIStateMessage(0, URL, i));
+        }
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            //与原实现一致，每次状态变化创建新的消息并广播给所有观察者
+            observable.send(new UIStateMessage(0, URL, i));
+        }
+        long cost = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS;
+        assertEquals(WARMUP + ITERATIONS, observers[0].received);
+        return cost;
+    }
+
+    private static long benchmarkDispatcher(int count) {
+        PlayStateDispatcher dispatcher = new PlayStateDispatcher();
+        CountingObserver[] observers = new CountingObserver[count];
+        for (int i = 0; i < count; i++) {
+            observers[i] = new CountingObserver(i);
+            dispatcher.addObserver(i, observers[i]);
+        }
+        for (int i = 0; i < WARMUP; i++) {
+            dispatcher.dispatchUIState(0, URL, i);
+        }
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            dispatcher.dispatchUIState(0, URL, i);
+        }
+        long cost = (SystemClock.elapsedRealtimeNanos() - start) / ITERATIONS;
+        assertEquals(WARMUP + ITERATIONS, observers[0].received);
+        return cost;
+    }
+
+    private static final class BroadcastObservable extends Observable {
+
+        void send(Message message) {
+            setChanged();
+            notifyObservers(message);
+        }
+
+    }
+
+    /**
+     * 模拟播放器视图：原实现中按hash与视频地址过滤消息
+     */
+    private static final class CountingObserver implements Observer, IPlayStateObserver {
+
+        private final int mHash;
+        int received;
+
+        CountingObserver(int hash) {
+            mHash = hash;
+        }
+
+        @Override
+        public void update(Observable o, Object arg) {
+            Message message = (Message) arg;
+            if (mHash == message.getHash() && URL.equals(message.getVideoUrl())) {
+                received++;
+            }
+        }
+
+        @Override
+        public void onPlayStateMessage(Message message) {
+            if (URL.equals(message.getVideoUrl())) {
+                received++;
+            }
+        }
+
+    }
+
+}
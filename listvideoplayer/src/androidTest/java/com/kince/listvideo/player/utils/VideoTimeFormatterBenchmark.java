@@ -0,0 +1,48 @@
+package com.kince.listvideo.player.utils;
+
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 对比{@link Utils#formatVideoTimeLength(long)}与{@link VideoTimeFormatter}每次格式化的耗时，
+ * 结果输出到logcat，TAG为VideoTimeFormatter
+ */
+@RunWith(AndroidJUnit4.class)
+public class VideoTimeFormatterBenchmark {
+
+    private static final String TAG = "VideoTimeFormatter";
+    private static final int WARMUP = 200000;
+    private static final int ITERATIONS = 2000000;
+    // 模拟每300ms刷新一次进度
+    private static final int TICK = 300;
+
+    @Test
+    public void formatCost() throws Exception {
+        char[] buffer = new char[16];
+        int sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += Utils.formatVideoTimeLength((long) i * TICK).length();
+            sink += VideoTimeFormatter.format((long) i * TICK, buffer);
+        }
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += Utils.formatVideoTimeLength((long) i * TICK).length();
+        }
+        long utilsNs = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += VideoTimeFormatter.format((long) i * TICK, buffer);
+        }
+        long formatterNs = SystemClock.elapsedRealtimeNanos() - start;
+
+        Log.i(TAG, String.format("Utils.formatVideoTimeLength: %.1fns/op, VideoTimeFormatter: %.1fns/op (%d)",
+                utilsNs * 1.0 / ITERATIONS, formatterNs * 1.0 / ITERATIONS, sink));
+    }
+
+}
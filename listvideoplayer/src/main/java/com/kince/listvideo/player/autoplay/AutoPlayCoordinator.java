@@ -0,0 +1,277 @@
+package com.kince.listvideo.player.autoplay;
+
+import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import com.kince.listvideo.player.player.VideoPlayerManager;
+import com.kince.listvideo.player.state.ScreenViewState;
+import com.kince.listvideo.player.utils.Utils;
+import com.kince.listvideo.player.utils.VideoPlayerLog;
+import com.kince.listvideo.player.view.AbsVideoPlayerView;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Created by Kince
+ *
+ * 列表自动播放，根据{@link AbsVideoPlayerView}在RecyclerView中的可见比例自动播放最完整可见的视频
+ *
+ * 1.item attach时查找一次其中的播放View并记录，滑动时只按记录的播放View计算可见比例，不遍历整个View树
+ * 2.可见比例超过阈值的播放View中比例最大的一个开始播放，正在播放的视频仍超过阈值时不切换
+ * 3.惯性滑动时不做决策，停止后再决定；手指拖动时滑动停顿一段时间后才决定，避免快速滑动中反复开始、中断prepare
+ * 4.全屏或小窗口播放时不自动切换
+ *
+ * 所有方法均需在主线程调用
+ */
+public final class AutoPlayCoordinator {
+
+    private static final String TAG = "AutoPlayCoordinator";
+
+    /**
+     * 默认可见比例阈值
+     */
+    public static final float DEFAULT_VISIBLE_THRESHOLD = 0.6f;
+    // 手指拖动时，滑动停顿该时长后才做决策
+    private static final long DRAG_DEBOUNCE_MS = 150;
+
+    private final float mVisibleThreshold;
+
+    private RecyclerView mRecyclerView;
+    // 已attach的item中的播放View，key为item的根View
+    private final Map<View, AbsVideoPlayerView> mCandidates = new HashMap<>();
+    private int mScrollState = RecyclerView.SCROLL_STATE_IDLE;
+    private boolean mEnabled = true;
+
+    private final Runnable mDecideRunnable = new Runnable() {
+        @Override
+        public void run() {
+            decide();
+        }
+    };
+
+    private final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            mScrollState = newState;
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                scheduleDecision(0);
+            } else if (newState == RecyclerView.SCROLL_STATE_SETTLING) {
+                //惯性滑动中不做决策
+                cancelDecision();
+            }
+        }
+
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            if (mScrollState == RecyclerView.SCROLL_STATE_DRAGGING) {
+                scheduleDecision(DRAG_DEBOUNCE_MS);
+            } else if (mScrollState == RecyclerView.SCROLL_STATE_IDLE) {
+                //scrollToPosition等非触摸滑动
+                scheduleDecision(0);
+            }
+        }
+    };
+
+    private final RecyclerView.OnChildAttachStateChangeListener mChildAttachListener =
+            new RecyclerView.OnChildAttachStateChangeListener() {
+                @Override
+                public void onChildViewAttachedToWindow(View view) {
+                    AbsVideoPlayerView playerView = findPlayerView(view);
+                    if (playerView != null) {
+                        mCandidates.put(view, playerView);
+                        if (mScrollState == RecyclerView.SCROLL_STATE_IDLE) {
+                            scheduleDecision(0);
+                        }
+                    }
+                }
+
+                @Override
+                public void onChildViewDetachedFromWindow(View view) {
+                    mCandidates.remove(view);
+                }
+            };
+
+    public AutoPlayCoordinator() {
+        this(DEFAULT_VISIBLE_THRESHOLD);
+    }
+
+    /**
+     * @param visibleThreshold 开始自动播放所需的可见比例，取值(0, 1]
+     */
+    public AutoPlayCoordinator(float visibleThreshold) {
+        if (visibleThreshold <= 0 || visibleThreshold > 1) {
+            throw new IllegalArgumentException("Visible threshold must be in (0, 1]");
+        }
+        mVisibleThreshold = visibleThreshold;
+    }
+
+    /**
+     * 关联RecyclerView，同一时间只能关联一个
+     *
+     * @param recyclerView
+     */
+    public void attach(RecyclerView recyclerView) {
+        if (mRecyclerView == recyclerView) {
+            return;
+        }
+        detach();
+        mRecyclerView = recyclerView;
+        mScrollState = recyclerView.getScrollState();
+        recyclerView.addOnScrollListener(mScrollListener);
+        recyclerView.addOnChildAttachStateChangeListener(mChildAttachListener);
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            mChildAttachListener.onChildViewAttachedToWindow(recyclerView.getChildAt(i));
+        }
+        scheduleDecision(0);
+    }
+
+    /**
+     * 解除与RecyclerView的关联，不影响正在播放的视频
+     */
+    public void detach() {
+        if (mRecyclerView == null) {
+            return;
+        }
+        cancelDecision();
+        mRecyclerView.removeOnScrollListener(mScrollListener);
+        mRecyclerView.removeOnChildAttachStateChangeListener(mChildAttachListener);
+        mRecyclerView = null;
+        mCandidates.clear();
+        mScrollState = RecyclerView.SCROLL_STATE_IDLE;
+    }
+
+    /**
+     * 开启或暂停自动播放，默认开启
+     *
+     * @param enabled
+     */
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+        if (enabled) {
+            scheduleDecision(0);
+        } else {
+            cancelDecision();
+        }
+    }
+
+    /**
+     * 列表数据更新等情况下主动触发一次决策，惯性滑动中调用时在滑动停止后决策
+     */
+    public void requestDecision() {
+        scheduleDecision(0);
+    }
+
+    private void scheduleDecision(long delayMs) {
+        if (mRecyclerView == null || !mEnabled) {
+            return;
+        }
+        mRecyclerView.removeCallbacks(mDecideRunnable);
+        mRecyclerView.postDelayed(mDecideRunnable, delayMs);
+    }
+
+    private void cancelDecision() {
+        if (mRecyclerView != null) {
+            mRecyclerView.removeCallbacks(mDecideRunnable);
+        }
+    }
+
+    private void decide() {
+        if (mRecyclerView == null || !mEnabled || mScrollState == RecyclerView.SCROLL_STATE_SETTLING) {
+            return;
+        }
+        VideoPlayerManager manager = VideoPlayerManager.getInstance();
+        if (!ScreenViewState.isNormal(manager.getScreenState())) {
+            return;
+        }
+        AbsVideoPlayerView best = null;
+        float bestFraction = 0;
+        for (AbsVideoPlayerView playerView : mCandidates.values()) {
+            float fraction = getVisibleFraction(playerView);
+            if (playerView.isCurrentVideoView() && fraction >= mVisibleThreshold) {
+                //正在播放的视频仍然可见，不切换
+                return;
+            }
+            if (fraction > bestFraction && !TextUtils.isEmpty(playerView.getVideoUrl())) {
+                best = playerView;
+                bestFraction = fraction;
+            }
+        }
+        if (best == null || bestFraction < mVisibleThreshold) {
+            return;
+        }
+        String url = best.getVideoUrl();
+        if (!Utils.isConnected(mRecyclerView.getContext()) && !manager.isCached(url)) {
+            return;
+        }
+        VideoPlayerLog.d(TAG, "auto play, visible=%.2f, url=%s", bestFraction, url);
+        if (manager.hasViewPlaying()) {
+            manager.stop();
+        }
+        best.startPlayVideo();
+    }
+
+    /**
+     * 计算播放View在RecyclerView中的可见比例，只沿父View向上累加偏移
+     *
+     * @param playerView
+     * @return 0~1
+     */
+    private float getVisibleFraction(AbsVideoPlayerView playerView) {
+        int width = playerView.getWidth();
+        int height = playerView.getHeight();
+        if (width <= 0 || height <= 0 || playerView.getVisibility() != View.VISIBLE) {
+            return 0;
+        }
+        int left = 0;
+        int top = 0;
+        View view = playerView;
+        while (view != mRecyclerView) {
+            left += view.getLeft() + (int) view.getTranslationX();
+            top += view.getTop() + (int) view.getTranslationY();
+            ViewParent parent = view.getParent();
+            if (!(parent instanceof View)) {
+                return 0;
+            }
+            view = (View) parent;
+            if (view != mRecyclerView) {
+                left -= view.getScrollX();
+                top -= view.getScrollY();
+            }
+        }
+        int visibleWidth = Math.min(left + width, mRecyclerView.getWidth() - mRecyclerView.getPaddingRight())
+                - Math.max(left, mRecyclerView.getPaddingLeft());
+        int visibleHeight = Math.min(top + height, mRecyclerView.getHeight() - mRecyclerView.getPaddingBottom())
+                - Math.max(top, mRecyclerView.getPaddingTop());
+        if (visibleWidth <= 0 || visibleHeight <= 0) {
+            return 0;
+        }
+        return (float) visibleWidth * visibleHeight / ((float) width * height);
+    }
+
+    /**
+     * item attach时调用，查找其中的播放View
+     *
+     * @param view
+     * @return 不存在时返回null
+     */
+    private static AbsVideoPlayerView findPlayerView(View view) {
+        if (view instanceof AbsVideoPlayerView) {
+            return (AbsVideoPlayerView) view;
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                AbsVideoPlayerView playerView = findPlayerView(group.getChildAt(i));
+                if (playerView != null) {
+                    return playerView;
+                }
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,236 @@
+package com.kince.listvideo.player.autoplay;
+
+import android.graphics.Rect;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SnapHelper;
+import android.view.View;
+import android.view.ViewParent;
+import android.widget.OverScroller;
+
+import com.kince.listvideo.player.R;
+import com.kince.listvideo.player.preload.VideoPreloader;
+import com.kince.listvideo.player.utils.VideoPlayerLog;
+import com.kince.listvideo.player.view.AbsVideoPlayerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by Kince
+ *
+ * 列表滑动时推迟自动播放
+ *
+ * Adapter中以autoPlay=true调用{@link AbsVideoPlayerView#bind(String, CharSequence, boolean)}时，
+ * 如果所在的RecyclerView正在滑动，不立即创建TextureView并prepare，而是在列表停止滑动后只播放可见比例最大的一个，
+ * 避免快速滑动中经过的每个item都启动一次解码器和网络请求
+ *
+ * 开始惯性滑动时按滑动速度估算停止的位置，交给{@link VideoPreloader}提前预热该位置附近的视频，
+ * 列表使用{@link SnapHelper}时由SnapHelper给出停止的位置。
+ * 速度取自RecyclerView的{@link RecyclerView.OnFlingListener}，已有的OnFlingListener（如SnapHelper）
+ * 会被包装后继续生效，因此需在SnapHelper.attachToRecyclerView()之后调用{@link #attach(RecyclerView)}
+ *
+ * 所有方法均需在主线程调用
+ */
+public final class FlingPlaybackGate {
+
+    private static final String TAG = "FlingPlaybackGate";
+
+    // 停止滑动后可见比例超过该值的item才会开始自动播放
+    private static final float MIN_VISIBLE_FRACTION = 0.5f;
+
+    private RecyclerView mRecyclerView;
+    private VideoPreloader mPreloader;
+    private OverScroller mScroller;
+    private final Rect mTmpRect = new Rect();
+
+    // 滑动中被推迟自动播放的View
+    private final List<AbsVideoPlayerView> mDeferredViews = new ArrayList<>();
+    private int mScrollState = RecyclerView.SCROLL_STATE_IDLE;
+    // attach前RecyclerView已有的OnFlingListener
+    private RecyclerView.OnFlingListener mFlingDelegate;
+
+    private final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            mScrollState = newState;
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                flushDeferred();
+            }
+        }
+    };
+
+    private final RecyclerView.OnFlingListener mFlingListener = new RecyclerView.OnFlingListener() {
+        @Override
+        public boolean onFling(int velocityX, int velocityY) {
+            predictLanding(velocityX, velocityY);
+            return mFlingDelegate != null && mFlingDelegate.onFling(velocityX, velocityY);
+        }
+    };
+
+    /**
+     * 获取View所在列表关联的FlingPlaybackGate
+     *
+     * @param view
+     * @return 不在列表中或列表未关联时返回null
+     */
+    public static FlingPlaybackGate from(View view) {
+        ViewParent parent = view.getParent();
+        while (parent instanceof View) {
+            if (parent instanceof RecyclerView) {
+                Object gate = ((RecyclerView) parent).getTag(R.id.vp_fling_playback_gate);
+                if (gate instanceof FlingPlaybackGate) {
+                    return (FlingPlaybackGate) gate;
+                }
+            }
+            parent = parent.getParent();
+        }
+        return null;
+    }
+
+    /**
+     * 关联RecyclerView，同一时间只能关联一个
+     *
+     * @param recyclerView
+     */
+    public void attach(RecyclerView recyclerView) {
+        if (mRecyclerView == recyclerView) {
+            return;
+        }
+        detach();
+        mRecyclerView = recyclerView;
+        mScrollState = recyclerView.getScrollState();
+        mScroller = new OverScroller(recyclerView.getContext());
+        recyclerView.setTag(R.id.vp_fling_playback_gate, this);
+        recyclerView.addOnScrollListener(mScrollListener);
+        //包装已有的OnFlingListener，由它继续处理惯性滑动
+        mFlingDelegate = recyclerView.getOnFlingListener();
+        recyclerView.setOnFlingListener(mFlingListener);
+    }
+
+    /**
+     * 解除关联，被推迟的自动播放立即开始
+     */
+    public void detach() {
+        if (mRecyclerView == null) {
+            return;
+        }
+        mRecyclerView.removeOnScrollListener(mScrollListener);
+        if (mRecyclerView.getOnFlingListener() == mFlingListener) {
+            mRecyclerView.setOnFlingListener(mFlingDelegate);
+        }
+        mFlingDelegate = null;
+        mRecyclerView.setTag(R.id.vp_fling_playback_gate, null);
+        mRecyclerView = null;
+        mScrollState = RecyclerView.SCROLL_STATE_IDLE;
+        flushDeferred();
+    }
+
+    /**
+     * 设置预加载器，开始惯性滑动时按估算的停止位置预加载
+     *
+     * @param preloader
+     */
+    public void setPreloader(VideoPreloader preloader) {
+        mPreloader = preloader;
+    }
+
+    /**
+     * 列表是否正在滑动
+     *
+     * @return
+     */
+    public boolean isScrolling() {
+        return mRecyclerView != null && mScrollState != RecyclerView.SCROLL_STATE_IDLE;
+    }
+
+    /**
+     * 列表滑动中时推迟自动播放，由{@link AbsVideoPlayerView#performAutoPlay()}调用
+     *
+     * @param view
+     * @return 是否已推迟
+     */
+    public boolean deferAutoPlay(AbsVideoPlayerView view) {
+        if (!isScrolling()) {
+            return false;
+        }
+        if (!mDeferredViews.contains(view)) {
+            mDeferredViews.add(view);
+        }
+        return true;
+    }
+
+    /**
+     * 列表停止滑动，只对可见比例最大的View开始自动播放
+     */
+    private void flushDeferred() {
+        AbsVideoPlayerView best = null;
+        float bestFraction = MIN_VISIBLE_FRACTION;
+        for (AbsVideoPlayerView view : mDeferredViews) {
+            if (!view.isAutoPlayPending() || view.getWindowToken() == null) {
+                continue;
+            }
+            float fraction = getVisibleFraction(view);
+            if (fraction >= bestFraction) {
+                best = view;
+                bestFraction = fraction;
+            }
+        }
+        mDeferredViews.clear();
+        if (best != null) {
+            best.performAutoPlay();
+        }
+    }
+
+    private float getVisibleFraction(View view) {
+        int area = view.getWidth() * view.getHeight();
+        if (area <= 0 || !view.getGlobalVisibleRect(mTmpRect)) {
+            return 0;
+        }
+        return (float) mTmpRect.width() * mTmpRect.height() / area;
+    }
+
+    /**
+     * 按手指离开时的速度估算惯性滑动停止的位置。
+     * 使用SnapHelper时由SnapHelper计算，使用其他OnFlingListener时无法估算，
+     * 否则按OverScroller的滑动距离估算，仅支持LinearLayoutManager
+     *
+     * @param velocityX 单位：px/s
+     * @param velocityY 单位：px/s
+     */
+    private void predictLanding(int velocityX, int velocityY) {
+        RecyclerView.LayoutManager manager = mRecyclerView.getLayoutManager();
+        if (mPreloader == null || manager == null) {
+            return;
+        }
+        if (mFlingDelegate instanceof SnapHelper) {
+            int landing = ((SnapHelper) mFlingDelegate).findTargetSnapPosition(manager, velocityX, velocityY);
+            if (landing != RecyclerView.NO_POSITION) {
+                VideoPlayerLog.d(TAG, "predict snap position %d", landing);
+                mPreloader.onPositionChanged(landing,
+                        (manager.canScrollVertically() ? velocityY : velocityX) >= 0);
+            }
+            return;
+        }
+        if (mFlingDelegate != null || !(manager instanceof LinearLayoutManager)) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) manager;
+        boolean vertical = layoutManager.getOrientation() == LinearLayoutManager.VERTICAL;
+        int first = layoutManager.findFirstVisibleItemPosition();
+        View firstView = first == RecyclerView.NO_POSITION ? null : layoutManager.findViewByPosition(first);
+        int itemSize = firstView == null ? 0 : vertical ? firstView.getHeight() : firstView.getWidth();
+        if (itemSize <= 0) {
+            return;
+        }
+        mScroller.fling(0, 0, velocityX, velocityY,
+                Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        int distance = vertical ? mScroller.getFinalY() : mScroller.getFinalX();
+        mScroller.abortAnimation();
+        int landing = first + Math.round((float) distance / itemSize);
+        landing = Math.max(0, Math.min(landing, layoutManager.getItemCount() - 1));
+        VideoPlayerLog.d(TAG, "predict landing position %d, distance=%d", landing, distance);
+        mPreloader.onPositionChanged(landing, distance >= 0);
+    }
+
+}
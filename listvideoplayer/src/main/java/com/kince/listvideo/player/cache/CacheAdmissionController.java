@@ -0,0 +1,67 @@
+package com.kince.listvideo.player.cache;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Created by Kince
+ *
+ * 缓存准入控制，时长超过{@link #mMaxDurationMillis}的视频不予缓存，
+ * 避免长视频挤占列表中反复播放的短视频的缓存空间
+ *
+ * 视频时长在播放器解析完成后才能得知，因此长视频在首次播放时仍会经过缓存，
+ * {@link VideoCacheDataSource}在每次写入前检查，被拒绝后不再写入，
+ * 由调用者在播放结束后调用{@link IVideoPlayerCache#remove(String)}删除已缓存的部分
+ */
+public final class CacheAdmissionController {
+
+    // 不限制视频时长
+    public static final long DURATION_UNLIMITED = 0;
+    // 最多记录的被拒绝视频数
+    private static final int MAX_REJECTED_URLS = 256;
+
+    private final long mMaxDurationMillis;
+    // 被拒绝缓存的视频，超出上限时移除最久未访问的记录
+    private final Set<String> mRejectedUrls = Collections.newSetFromMap(
+            new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_REJECTED_URLS;
+                }
+            });
+
+    /**
+     * @param maxDurationMillis 允许缓存的视频最大时长，单位毫秒
+     */
+    public CacheAdmissionController(long maxDurationMillis) {
+        mMaxDurationMillis = maxDurationMillis;
+    }
+
+    /**
+     * 视频是否允许缓存
+     *
+     * @param url 视频地址
+     * @return
+     */
+    public synchronized boolean isAdmitted(String url) {
+        return !mRejectedUrls.contains(url);
+    }
+
+    /**
+     * 视频时长解析完成时调用
+     *
+     * @param url            视频地址
+     * @param durationMillis 视频时长，单位毫秒
+     * @return 是否允许缓存
+     */
+    public synchronized boolean onDurationKnown(String url, long durationMillis) {
+        if (mMaxDurationMillis != DURATION_UNLIMITED && durationMillis > mMaxDurationMillis) {
+            mRejectedUrls.add(url);
+            return false;
+        }
+        return true;
+    }
+
+}
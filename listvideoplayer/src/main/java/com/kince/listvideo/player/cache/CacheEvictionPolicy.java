@@ -0,0 +1,125 @@
+package com.kince.listvideo.player.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Kince
+ *
+ * 缓存淘汰策略
+ *
+ * 1.按缓存总字节数限制缓存大小，超出{@link #getMaxBytes()}时淘汰保留分值最低的视频
+ * 2.可选的过期时间，超过{@link #getTtlMillis()}未被访问的视频视为已过期，优先淘汰
+ * 3.保留分值综合考虑最后访问时间和访问次数（LRU/LFU混合）：访问次数每翻一倍，
+ * 相当于将最后访问时间推后{@link #FREQUENCY_UNIT_MILLIS} × {@link #getFrequencyWeight()}，
+ * frequencyWeight为0时即为纯LRU
+ */
+public final class CacheEvictionPolicy {
+
+    // 默认最大缓存字节数
+    public static final long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+    // 默认访问频率权重
+    public static final float DEFAULT_FREQUENCY_WEIGHT = 1f;
+    // 不过期
+    public static final long TTL_NONE = 0;
+
+    // 访问频率对应的时间单位
+    private static final long FREQUENCY_UNIT_MILLIS = 10 * 60 * 1000;
+
+    private final long mMaxBytes;
+    private final long mTtlMillis;
+    private final float mFrequencyWeight;
+
+    private CacheEvictionPolicy(Builder builder) {
+        mMaxBytes = builder.maxBytes;
+        mTtlMillis = builder.ttlMillis;
+        mFrequencyWeight = builder.frequencyWeight;
+    }
+
+    /**
+     * @return 默认淘汰策略，最大512MB，不过期
+     */
+    public static CacheEvictionPolicy createDefault() {
+        return new Builder().build();
+    }
+
+    public long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    public long getTtlMillis() {
+        return mTtlMillis;
+    }
+
+    public float getFrequencyWeight() {
+        return mFrequencyWeight;
+    }
+
+    /**
+     * 视频缓存是否已过期
+     *
+     * @param lastAccessTime 最后访问时间
+     * @param now            当前时间
+     * @return
+     */
+    public boolean isExpired(long lastAccessTime, long now) {
+        return mTtlMillis != TTL_NONE && now - lastAccessTime > mTtlMillis;
+    }
+
+    /**
+     * 计算视频缓存的保留分值，分值越低越先被淘汰
+     *
+     * @param lastAccessTime 最后访问时间
+     * @param accessCount    访问次数
+     * @return
+     */
+    public double score(long lastAccessTime, int accessCount) {
+        double frequency = Math.log(1 + Math.max(0, accessCount)) / Math.log(2);
+        return lastAccessTime + mFrequencyWeight * frequency * FREQUENCY_UNIT_MILLIS;
+    }
+
+    public final static class Builder {
+
+        private long maxBytes = DEFAULT_MAX_BYTES;
+        private long ttlMillis = TTL_NONE;
+        private float frequencyWeight = DEFAULT_FREQUENCY_WEIGHT;
+
+        /**
+         * 设置缓存总大小的上限
+         *
+         * @param maxBytes 最大字节数
+         * @return
+         */
+        public Builder maxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * 设置缓存过期时间，从视频最后一次被访问开始计算，默认不过期
+         *
+         * @param ttl
+         * @param unit
+         * @return
+         */
+        public Builder ttl(long ttl, TimeUnit unit) {
+            this.ttlMillis = unit.toMillis(ttl);
+            return this;
+        }
+
+        /**
+         * 设置访问频率在淘汰时所占的权重，为0时按LRU淘汰
+         *
+         * @param weight
+         * @return
+         */
+        public Builder frequencyWeight(float weight) {
+            this.frequencyWeight = weight;
+            return this;
+        }
+
+        public CacheEvictionPolicy build() {
+            return new CacheEvictionPolicy(this);
+        }
+    }
+
+}
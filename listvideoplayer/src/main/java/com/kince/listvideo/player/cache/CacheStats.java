@@ -0,0 +1,60 @@
+package com.kince.listvideo.player.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Created by Kince
+ * 缓存命中、未命中与淘汰的统计
+ */
+public final class CacheStats {
+
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+    private final AtomicLong mEvictionCount = new AtomicLong();
+    private final AtomicLong mEvictedBytes = new AtomicLong();
+
+    public void recordHit() {
+        mHitCount.incrementAndGet();
+    }
+
+    public void recordMiss() {
+        mMissCount.incrementAndGet();
+    }
+
+    public void recordEviction(long bytes) {
+        mEvictionCount.incrementAndGet();
+        mEvictedBytes.addAndGet(bytes);
+    }
+
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    public long getEvictionCount() {
+        return mEvictionCount.get();
+    }
+
+    public long getEvictedBytes() {
+        return mEvictedBytes.get();
+    }
+
+    /**
+     * @return 命中率，没有任何请求时返回0
+     */
+    public float getHitRate() {
+        long hit = getHitCount();
+        long total = hit + getMissCount();
+        return total == 0 ? 0 : hit * 1.0f / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hit=" + getHitCount() + ", miss=" + getMissCount()
+                + ", eviction=" + getEvictionCount() + ", evictedBytes=" + getEvictedBytes() + "}";
+    }
+
+}
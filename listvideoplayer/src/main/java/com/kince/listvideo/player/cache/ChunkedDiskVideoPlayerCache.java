@@ -0,0 +1,398 @@
+package com.kince.listvideo.player.cache;
+
+import com.danikula.videocache.ProxyCacheUtils;
+import com.kince.listvideo.player.utils.VideoPlayerLog;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by Kince
+ *
+ * 默认的磁盘缓存实现
+ *
+ * 每个视频对应缓存目录下的一个子目录（目录名为视频地址的MD5），视频数据按固定大小{@link #mChunkSize}
+ * 切分成块，每块保存为一个文件，块内数据从块的起始位置开始连续存储。
+ * 因此视频不需要从头开始完整缓存，拖动进度或未看完的视频已缓存的块均可复用
+ *
+ * 缓存的淘汰由{@link CacheEvictionPolicy}决定
+ */
+public class ChunkedDiskVideoPlayerCache implements IVideoPlayerCache {
+
+    // 默认块大小
+    public static final int DEFAULT_CHUNK_SIZE = 512 * 1024;
+
+    private static final String CHUNK_SUFFIX = ".chunk";
+    private static final String INFO_FILE_NAME = "info";
+
+    private final File mCacheDir;
+    private final int mChunkSize;
+    private final CacheEvictionPolicy mPolicy;
+    private final CacheStats mStats = new CacheStats();
+
+    // 缓存的视频，key为视频地址的MD5
+    private final Map<String, Entry> mEntries = new HashMap<>();
+    // 当前缓存总大小
+    private long mTotalSize;
+    private boolean mInitialized;
+    private EvictionListener mEvictionListener;
+
+    public ChunkedDiskVideoPlayerCache(File cacheDir) {
+        this(cacheDir, DEFAULT_CHUNK_SIZE, CacheEvictionPolicy.createDefault());
+    }
+
+    /**
+     * @param cacheDir  缓存目录
+     * @param chunkSize 块大小
+     * @param policy    淘汰策略
+     */
+    public ChunkedDiskVideoPlayerCache(File cacheDir, int chunkSize, CacheEvictionPolicy policy) {
+        mCacheDir = cacheDir;
+        mChunkSize = chunkSize;
+        mPolicy = policy;
+    }
+
+    /**
+     * 缓存中的单个视频
+     */
+    private static final class Entry {
+        final String key;
+        String url;
+        long contentLength = LENGTH_UNKNOWN;
+        long size;
+        long lastAccessTime;
+        int accessCount;
+
+        Entry(String key, long lastAccessTime) {
+            this.key = key;
+            this.lastAccessTime = lastAccessTime;
+        }
+    }
+
+    @Override
+    public synchronized String getPlayUrl(String url) {
+        //每次开始播放视频时记录一次访问
+        Entry entry = getEntry(url, false);
+        if (entry != null) {
+            entry.lastAccessTime = System.currentTimeMillis();
+            entry.accessCount++;
+            getEntryDir(entry.key).setLastModified(entry.lastAccessTime);
+        }
+        return url;
+    }
+
+    @Override
+    public synchronized boolean isCached(String url) {
+        Entry entry = getEntry(url, false);
+        return entry != null && entry.contentLength != LENGTH_UNKNOWN
+                && getCachedLength(url, 0) >= entry.contentLength;
+    }
+
+    @Override
+    public synchronized long getCachedLength(String url, long position) {
+        Entry entry = getEntry(url, false);
+        if (entry == null) {
+            return 0;
+        }
+        long cached = 0;
+        long current = position;
+        while (entry.contentLength == LENGTH_UNKNOWN || current < entry.contentLength) {
+            long chunkOffset = current % mChunkSize;
+            long chunkLength = getChunkFile(entry, current / mChunkSize).length();
+            if (chunkLength <= chunkOffset) {
+                break;
+            }
+            cached += chunkLength - chunkOffset;
+            current += chunkLength - chunkOffset;
+            if (chunkLength < mChunkSize) {
+                break;
+            }
+        }
+        return cached;
+    }
+
+    @Override
+    public synchronized float getCachedPercent(String url) {
+        Entry entry = getEntry(url, false);
+        if (entry == null || entry.contentLength <= 0) {
+            return 0;
+        }
+        return Math.min(1f, entry.size * 1.0f / entry.contentLength);
+    }
+
+    @Override
+    public synchronized long getContentLength(String url) {
+        Entry entry = getEntry(url, false);
+        return entry == null ? LENGTH_UNKNOWN : entry.contentLength;
+    }
+
+    @Override
+    public synchronized void setContentLength(String url, long length) throws IOException {
+        Entry entry = getEntry(url, true);
+        if (entry.contentLength == length) {
+            return;
+        }
+        entry.contentLength = length;
+        writeInfo(entry);
+    }
+
+    @Override
+    public boolean isWritable() {
+        return true;
+    }
+
+    @Override
+    public synchronized int read(String url, long position, byte[] buffer, int offset, int length) throws IOException {
+        Entry entry = getEntry(url, false);
+        if (entry == null) {
+            mStats.recordMiss();
+            return -1;
+        }
+        long chunkOffset = position % mChunkSize;
+        File chunkFile = getChunkFile(entry, position / mChunkSize);
+        long chunkLength = chunkFile.length();
+        if (chunkLength <= chunkOffset) {
+            mStats.recordMiss();
+            return -1;
+        }
+        mStats.recordHit();
+        int readLength = (int) Math.min(length, chunkLength - chunkOffset);
+        RandomAccessFile file = new RandomAccessFile(chunkFile, "r");
+        try {
+            file.seek(chunkOffset);
+            file.readFully(buffer, offset, readLength);
+        } finally {
+            file.close();
+        }
+        return readLength;
+    }
+
+    @Override
+    public synchronized void write(String url, long position, byte[] buffer, int offset, int length) throws IOException {
+        Entry entry = getEntry(url, true);
+        if (entry.contentLength > mPolicy.getMaxBytes()) {
+            //单个视频超出缓存总大小限制，不缓存
+            return;
+        }
+        while (length > 0) {
+            long chunkOffset = position % mChunkSize;
+            int writeLength = (int) Math.min(length, mChunkSize - chunkOffset);
+            File chunkFile = getChunkFile(entry, position / mChunkSize);
+            long chunkLength = chunkFile.length();
+            //块内数据必须连续，只追加紧接在已缓存数据之后的部分
+            if (chunkOffset <= chunkLength && chunkOffset + writeLength > chunkLength) {
+                int skip = (int) (chunkLength - chunkOffset);
+                RandomAccessFile file = new RandomAccessFile(chunkFile, "rw");
+                try {
+                    file.seek(chunkLength);
+                    file.write(buffer, offset + skip, writeLength - skip);
+                } finally {
+                    file.close();
+                }
+                entry.size += writeLength - skip;
+                mTotalSize += writeLength - skip;
+            }
+            position += writeLength;
+            offset += writeLength;
+            length -= writeLength;
+        }
+        trimToSize(entry.key);
+    }
+
+    @Override
+    public synchronized void remove(String url) {
+        Entry entry = getEntry(url, false);
+        if (entry != null) {
+            removeEntry(entry);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        ensureInitialized();
+        for (Entry entry : mEntries.values()) {
+            deleteDir(getEntryDir(entry.key));
+        }
+        mEntries.clear();
+        mTotalSize = 0;
+    }
+
+    @Override
+    public synchronized long getCacheSize() {
+        ensureInitialized();
+        return mTotalSize;
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return mStats;
+    }
+
+    @Override
+    public synchronized void setEvictionListener(EvictionListener listener) {
+        mEvictionListener = listener;
+    }
+
+    /**
+     * 淘汰已过期的视频，缓存总大小超出限制时再按保留分值从低到高淘汰
+     *
+     * @param keepKey 不参与淘汰的视频，即正在写入的视频
+     */
+    private void trimToSize(String keepKey) {
+        long now = System.currentTimeMillis();
+        List<Entry> candidates = new ArrayList<>(mEntries.size());
+        for (Entry entry : mEntries.values()) {
+            if (!entry.key.equals(keepKey)) {
+                candidates.add(entry);
+            }
+        }
+        Collections.sort(candidates, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry lhs, Entry rhs) {
+                return Double.compare(mPolicy.score(lhs.lastAccessTime, lhs.accessCount),
+                        mPolicy.score(rhs.lastAccessTime, rhs.accessCount));
+            }
+        });
+        for (Entry entry : candidates) {
+            if (mTotalSize > mPolicy.getMaxBytes() || mPolicy.isExpired(entry.lastAccessTime, now)) {
+                evict(entry);
+            }
+        }
+    }
+
+    private void evict(Entry entry) {
+        removeEntry(entry);
+        mStats.recordEviction(entry.size);
+        if (mEvictionListener != null) {
+            mEvictionListener.onEvicted(entry.url, entry.size);
+        }
+    }
+
+    private void removeEntry(Entry entry) {
+        mEntries.remove(entry.key);
+        deleteDir(getEntryDir(entry.key));
+        mTotalSize -= entry.size;
+    }
+
+    private Entry getEntry(String url, boolean create) {
+        ensureInitialized();
+        String key = ProxyCacheUtils.computeMD5(url);
+        Entry entry = mEntries.get(key);
+        if (entry != null && mPolicy.isExpired(entry.lastAccessTime, System.currentTimeMillis())) {
+            evict(entry);
+            entry = null;
+        }
+        if (entry == null && create) {
+            entry = new Entry(key, System.currentTimeMillis());
+            entry.url = url;
+            getEntryDir(key).mkdirs();
+            mEntries.put(key, entry);
+        }
+        if (entry != null && entry.url == null) {
+            entry.url = url;
+        }
+        return entry;
+    }
+
+    /**
+     * 首次使用时扫描缓存目录，恢复上次的缓存记录
+     */
+    private void ensureInitialized() {
+        if (mInitialized) {
+            return;
+        }
+        mInitialized = true;
+        File[] dirs = mCacheDir.listFiles();
+        if (dirs == null) {
+            mCacheDir.mkdirs();
+            return;
+        }
+        for (File dir : dirs) {
+            if (!dir.isDirectory()) {
+                continue;
+            }
+            //目录的最后修改时间即为最后访问时间
+            Entry entry = new Entry(dir.getName(), dir.lastModified());
+            readInfo(entry);
+            File[] chunks = dir.listFiles();
+            if (chunks != null) {
+                for (File chunk : chunks) {
+                    if (chunk.getName().endsWith(CHUNK_SUFFIX)) {
+                        entry.size += chunk.length();
+                    }
+                }
+            }
+            mTotalSize += entry.size;
+            mEntries.put(entry.key, entry);
+        }
+    }
+
+    private void readInfo(Entry entry) {
+        File info = new File(getEntryDir(entry.key), INFO_FILE_NAME);
+        if (!info.exists()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(info));
+            entry.contentLength = in.readLong();
+            String url = in.readUTF();
+            entry.url = url.length() == 0 ? null : url;
+        } catch (IOException e) {
+            VideoPlayerLog.e(VideoPlayerLog.TAG, "read cache info failed, key=" + entry.key, e);
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private void writeInfo(Entry entry) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+                new FileOutputStream(new File(getEntryDir(entry.key), INFO_FILE_NAME)));
+        try {
+            out.writeLong(entry.contentLength);
+            out.writeUTF(entry.url == null ? "" : entry.url);
+        } finally {
+            out.close();
+        }
+    }
+
+    private File getEntryDir(String key) {
+        return new File(mCacheDir, key);
+    }
+
+    private File getChunkFile(Entry entry, long index) {
+        return new File(getEntryDir(entry.key), index + CHUNK_SUFFIX);
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.kince.listvideo.player.cache;
+
+import com.danikula.videocache.file.DiskUsage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by Kince
+ *
+ * 按{@link CacheEvictionPolicy}管理{@link com.danikula.videocache.HttpProxyCacheServer}的缓存文件，
+ * 替代按文件个数淘汰的策略
+ *
+ * 代理每次访问缓存文件时都会更新文件的最后修改时间，因此代理缓存的过期时间从最后一次访问开始计算
+ *
+ * {@link #touch(File)}由代理处理请求的线程调用，直接在调用线程中完成淘汰，不再另开线程；
+ * 缓存文件名为视频地址的MD5，无法还原视频地址，淘汰回调中的url总为null
+ */
+public class EvictionPolicyDiskUsage implements DiskUsage {
+
+    private final CacheEvictionPolicy mPolicy;
+    private final CacheStats mStats = new CacheStats();
+    // 缓存的访问次数，以缓存key（不带临时文件后缀的文件名）为key，需持有this访问
+    private final Map<String, Integer> mAccessCounts = new HashMap<>();
+    private volatile IVideoPlayerCache.EvictionListener mEvictionListener;
+
+    public EvictionPolicyDiskUsage(CacheEvictionPolicy policy) {
+        mPolicy = policy;
+    }
+
+    public CacheStats getStats() {
+        return mStats;
+    }
+
+    public void setEvictionListener(IVideoPlayerCache.EvictionListener listener) {
+        mEvictionListener = listener;
+    }
+
+    @Override
+    public synchronized void touch(File file) throws IOException {
+        final long now = System.currentTimeMillis();
+        if (file.exists()) {
+            file.setLastModified(now);
+        }
+        String key = getCacheKey(file);
+        Integer count = mAccessCounts.get(key);
+        mAccessCounts.put(key, count == null ? 1 : count + 1);
+
+        File[] files = file.getParentFile().listFiles();
+        if (files == null) {
+            return;
+        }
+        long totalSize = 0;
+        List<File> candidates = new ArrayList<>();
+        for (File cacheFile : files) {
+            if (!cacheFile.isFile()) {
+                continue;
+            }
+            totalSize += cacheFile.length();
+            if (!cacheFile.equals(file)) {
+                candidates.add(cacheFile);
+            }
+        }
+        Collections.sort(candidates, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                return Double.compare(score(lhs), score(rhs));
+            }
+        });
+        for (File candidate : candidates) {
+            boolean expired = mPolicy.isExpired(candidate.lastModified(), now);
+            if (!expired && totalSize <= mPolicy.getMaxBytes()) {
+                continue;
+            }
+            totalSize -= delete(candidate);
+        }
+        if (totalSize > mPolicy.getMaxBytes()) {
+            //淘汰其他缓存后仍超出限制，不再保留该视频的缓存
+            delete(file);
+        }
+    }
+
+    /**
+     * 删除缓存文件
+     *
+     * @param file
+     * @return 删除的字节数
+     */
+    private long delete(File file) {
+        long size = file.length();
+        if (!file.delete()) {
+            return 0;
+        }
+        mAccessCounts.remove(getCacheKey(file));
+        mStats.recordEviction(size);
+        IVideoPlayerCache.EvictionListener listener = mEvictionListener;
+        if (listener != null) {
+            //无法由文件名得知视频地址
+            listener.onEvicted(null, size);
+        }
+        return size;
+    }
+
+    private double score(File file) {
+        Integer count = mAccessCounts.get(getCacheKey(file));
+        return mPolicy.score(file.lastModified(), count == null ? 0 : count);
+    }
+
+    /**
+     * 获取缓存文件对应的缓存key，缓存完成时临时文件会被重命名，访问次数需要按key统计
+     *
+     * @param file
+     * @return
+     */
+    private static String getCacheKey(File file) {
+        String name = file.getName();
+        if (name.endsWith(ProxyVideoPlayerCache.TEMP_POSTFIX)) {
+            return name.substring(0, name.length() - ProxyVideoPlayerCache.TEMP_POSTFIX.length());
+        }
+        return name;
+    }
+
+}
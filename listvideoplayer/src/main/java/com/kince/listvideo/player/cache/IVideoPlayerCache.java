@@ -1,10 +1,145 @@
 package com.kince.listvideo.player.cache;
 
+import java.io.IOException;
+
 /**
  * Created by Kince
  * 视频缓存
+ *
+ * 以视频地址为key，按字节区间读写缓存数据。支持只缓存视频的一部分，
+ * 未看完的视频再次播放时已缓存的区间可以直接使用
  */
-final class IVideoPlayerCache {
+public interface IVideoPlayerCache {
+
+    /**
+     * 视频总长度未知
+     */
+    long LENGTH_UNKNOWN = -1;
+
+    /**
+     * 获取播放器真正使用的播放地址
+     * 基于本地代理实现的缓存返回代理地址，否则返回原地址
+     *
+     * @param url 视频地址
+     * @return
+     */
+    String getPlayUrl(String url);
+
+    /**
+     * 视频是否已经完整缓存
+     *
+     * @param url 视频地址
+     * @return
+     */
+    boolean isCached(String url);
+
+    /**
+     * 获取从position开始连续已缓存的字节数
+     *
+     * @param url      视频地址
+     * @param position 起始位置
+     * @return 未缓存时返回0
+     */
+    long getCachedLength(String url, long position);
+
+    /**
+     * 获取已缓存部分占视频总长度的比例
+     *
+     * @param url 视频地址
+     * @return 0～1，视频总长度未知时返回0
+     */
+    float getCachedPercent(String url);
+
+    /**
+     * 获取视频总长度
+     *
+     * @param url 视频地址
+     * @return 未知时返回{@link #LENGTH_UNKNOWN}
+     */
+    long getContentLength(String url);
+
+    /**
+     * 设置视频总长度，通常在请求到视频数据时设置
+     *
+     * @param url    视频地址
+     * @param length 视频总长度
+     * @throws IOException
+     */
+    void setContentLength(String url, long length) throws IOException;
+
+    /**
+     * 从缓存中读取数据
+     *
+     * @param url      视频地址
+     * @param position 读取的起始位置
+     * @param buffer   数据写入的buffer
+     * @param offset   buffer的起始位置
+     * @param length   最多读取的字节数
+     * @return 实际读取的字节数，position处没有缓存时返回-1
+     * @throws IOException
+     */
+    int read(String url, long position, byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * 是否支持通过{@link #write(String, long, byte[], int, int)}写入缓存
+     * 基于本地代理实现的缓存由代理自行写入，返回false
+     *
+     * @return
+     */
+    boolean isWritable();
+
+    /**
+     * 将数据写入缓存，仅在{@link #isWritable()}为true时可以调用
+     *
+     * @param url      视频地址
+     * @param position 数据在视频中的起始位置
+     * @param buffer   数据
+     * @param offset   buffer的起始位置
+     * @param length   写入的字节数
+     * @throws IOException
+     */
+    void write(String url, long position, byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * 删除视频的缓存
+     *
+     * @param url 视频地址
+     */
+    void remove(String url);
+
+    /**
+     * 清空所有缓存
+     */
+    void clear();
+
+    /**
+     * @return 已缓存的总字节数
+     */
+    long getCacheSize();
+
+    /**
+     * @return 缓存命中、未命中与淘汰的统计
+     */
+    CacheStats getStats();
+
+    /**
+     * 设置缓存被淘汰时的回调
+     *
+     * @param listener
+     */
+    void setEvictionListener(EvictionListener listener);
+
+    /**
+     * 缓存淘汰回调
+     */
+    interface EvictionListener {
+
+        /**
+         * @param url  被淘汰的视频地址，无法得知时（如基于代理实现的缓存）为null
+         * @param size 被淘汰的字节数
+         */
+        void onEvicted(String url, long size);
 
+    }
 
 }
@@ -0,0 +1,240 @@
+package com.kince.listvideo.player.cache;
+
+import android.content.Context;
+
+import com.danikula.videocache.HttpProxyCacheServer;
+import com.danikula.videocache.ProxyCacheUtils;
+import com.danikula.videocache.file.Md5FileNameGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created by Kince
+ *
+ * 基于本地代理{@link HttpProxyCacheServer}实现的缓存，播放器通过代理地址播放视频，
+ * 视频数据由代理在播放过程中写入缓存，因此{@link #isWritable()}为false
+ *
+ * 代理总是从视频开头连续缓存，缓存文件名为视频地址的MD5，未缓存完成时带有{@link #TEMP_POSTFIX}后缀
+ */
+public class ProxyVideoPlayerCache implements IVideoPlayerCache {
+
+    static final String TEMP_POSTFIX = ".download";
+
+    private final HttpProxyCacheServer mCacheProxy;
+    private final File mCacheDir;
+    private final EvictionPolicyDiskUsage mDiskUsage;
+    private final CacheStats mStats;
+    // 通过代理请求时得知的视频总长度
+    private final Map<String, Long> mContentLengths = new ConcurrentHashMap<>();
+
+    /**
+     * @param cacheProxy 缓存代理
+     * @param cacheDir   缓存代理使用的缓存目录，为null时不支持缓存数据的读取
+     */
+    public ProxyVideoPlayerCache(HttpProxyCacheServer cacheProxy, File cacheDir) {
+        this(cacheProxy, cacheDir, null);
+    }
+
+    /**
+     * @param cacheProxy 缓存代理
+     * @param cacheDir   缓存代理使用的缓存目录，为null时不支持缓存数据的读取
+     * @param diskUsage  缓存代理使用的淘汰策略，用于统计淘汰信息，可以为null
+     */
+    public ProxyVideoPlayerCache(HttpProxyCacheServer cacheProxy, File cacheDir, EvictionPolicyDiskUsage diskUsage) {
+        mCacheProxy = cacheProxy;
+        mCacheDir = cacheDir;
+        mDiskUsage = diskUsage;
+        mStats = diskUsage == null ? new CacheStats() : diskUsage.getStats();
+    }
+
+    /**
+     * 创建缓存代理并按淘汰策略管理缓存文件
+     *
+     * @param context
+     * @param cacheDir 缓存目录
+     * @param policy   淘汰策略
+     * @return
+     */
+    public static ProxyVideoPlayerCache create(Context context, File cacheDir, CacheEvictionPolicy policy) {
+        EvictionPolicyDiskUsage diskUsage = new EvictionPolicyDiskUsage(policy);
+        HttpProxyCacheServer cacheProxy = new HttpProxyCacheServer
+                .Builder(context.getApplicationContext())
+                .cacheDirectory(cacheDir)
+                .fileNameGenerator(new Md5FileNameGenerator() {
+                    @Override
+                    public String generate(String url) {
+                        return ProxyCacheUtils.computeMD5(url);
+                    }
+                })
+                .diskUsage(diskUsage)
+                .build();
+        return new ProxyVideoPlayerCache(cacheProxy, cacheDir, diskUsage);
+    }
+
+    public HttpProxyCacheServer getCacheProxy() {
+        return mCacheProxy;
+    }
+
+    @Override
+    public String getPlayUrl(String url) {
+        if (mCacheProxy.isCached(url)) {
+            mStats.recordHit();
+        } else {
+            mStats.recordMiss();
+        }
+        return mCacheProxy.getProxyUrl(url);
+    }
+
+    @Override
+    public boolean isCached(String url) {
+        return mCacheProxy.isCached(url);
+    }
+
+    @Override
+    public long getCachedLength(String url, long position) {
+        File file = getCacheFile(url);
+        if (file == null) {
+            return 0;
+        }
+        return Math.max(0, file.length() - position);
+    }
+
+    @Override
+    public float getCachedPercent(String url) {
+        if (isCached(url)) {
+            return 1f;
+        }
+        File file = getCacheFile(url);
+        long contentLength = getContentLength(url);
+        if (file == null || contentLength <= 0) {
+            return 0;
+        }
+        //未缓存完成时统计临时文件的长度
+        return Math.min(1f, file.length() * 1.0f / contentLength);
+    }
+
+    @Override
+    public long getContentLength(String url) {
+        Long length = mContentLengths.get(url);
+        if (length != null) {
+            return length;
+        }
+        File file = getCacheFile(url);
+        if (file == null || !isCached(url)) {
+            return LENGTH_UNKNOWN;
+        }
+        return file.length();
+    }
+
+    /**
+     * 代理自行记录视频长度，这里只记录在内存中，用于计算未缓存完成时的缓存比例
+     */
+    @Override
+    public void setContentLength(String url, long length) throws IOException {
+        if (length > 0) {
+            mContentLengths.put(url, length);
+        }
+    }
+
+    @Override
+    public boolean isWritable() {
+        return false;
+    }
+
+    @Override
+    public int read(String url, long position, byte[] buffer, int offset, int length) throws IOException {
+        File cacheFile = getCacheFile(url);
+        if (cacheFile == null || cacheFile.length() <= position) {
+            return -1;
+        }
+        RandomAccessFile file = new RandomAccessFile(cacheFile, "r");
+        try {
+            file.seek(position);
+            return file.read(buffer, offset, length);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * 缓存由HttpProxyCacheServer在代理请求时写入，{@link #isWritable()}为false，此处不做任何处理
+     */
+    @Override
+    public void write(String url, long position, byte[] buffer, int offset, int length) throws IOException {
+    }
+
+    @Override
+    public void remove(String url) {
+        mContentLengths.remove(url);
+        File file = getCacheFile(url);
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Override
+    public void clear() {
+        mContentLengths.clear();
+        File[] files = mCacheDir == null ? null : mCacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            //跳过缓存目录下的子目录，如分块缓存的目录
+            if (file.isFile()) {
+                file.delete();
+            }
+        }
+    }
+
+    @Override
+    public long getCacheSize() {
+        File[] files = mCacheDir == null ? null : mCacheDir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long size = 0;
+        for (File file : files) {
+            if (file.isFile()) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return mStats;
+    }
+
+    @Override
+    public void setEvictionListener(EvictionListener listener) {
+        if (mDiskUsage != null) {
+            mDiskUsage.setEvictionListener(listener);
+        }
+    }
+
+    /**
+     * 获取视频对应的缓存文件
+     *
+     * @param url
+     * @return 不存在时返回null
+     */
+    private File getCacheFile(String url) {
+        if (mCacheDir == null) {
+            return null;
+        }
+        String name = ProxyCacheUtils.computeMD5(url);
+        File file = new File(mCacheDir, name);
+        if (file.exists()) {
+            return file;
+        }
+        file = new File(mCacheDir, name + TEMP_POSTFIX);
+        return file.exists() ? file : null;
+    }
+
+}
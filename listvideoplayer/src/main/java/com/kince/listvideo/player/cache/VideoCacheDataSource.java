@@ -0,0 +1,165 @@
+package com.kince.listvideo.player.cache;
+
+import android.net.Uri;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.kince.listvideo.player.utils.VideoPlayerLog;
+
+import java.io.IOException;
+
+/**
+ * Created by Kince
+ *
+ * 直接读写{@link IVideoPlayerCache}的ExoPlayer数据源，不经过本地代理
+ *
+ * 已缓存的区间从缓存中读取，未缓存的区间从上游数据源读取并同时写入缓存，
+ * 每次写入前检查{@link CacheAdmissionController}，视频被拒绝缓存后不再写入
+ */
+public final class VideoCacheDataSource implements DataSource {
+
+    private final IVideoPlayerCache mCache;
+    private final DataSource mUpstream;
+    private final CacheAdmissionController mAdmissionController;
+
+    private Uri mUri;
+    private String mKey;
+    private int mFlags;
+    private long mReadPosition;
+    private long mBytesRemaining;
+    // 当前是否从上游数据源读取
+    private boolean mReadingUpstream;
+    private boolean mUpstreamOpened;
+    // 当前视频已被拒绝缓存
+    private boolean mWriteRejected;
+
+    public VideoCacheDataSource(IVideoPlayerCache cache, DataSource upstream) {
+        this(cache, upstream, null);
+    }
+
+    /**
+     * @param cache
+     * @param upstream
+     * @param admissionController 为null时不限制写入
+     */
+    public VideoCacheDataSource(IVideoPlayerCache cache, DataSource upstream,
+                                CacheAdmissionController admissionController) {
+        mCache = cache;
+        mUpstream = upstream;
+        mAdmissionController = admissionController;
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        mUri = dataSpec.uri;
+        mKey = dataSpec.key != null ? dataSpec.key : dataSpec.uri.toString();
+        mFlags = dataSpec.flags;
+        mWriteRejected = false;
+        mReadPosition = dataSpec.position;
+        long contentLength = mCache.getContentLength(mKey);
+        if (dataSpec.length != C.LENGTH_UNSET) {
+            mBytesRemaining = dataSpec.length;
+        } else if (contentLength != IVideoPlayerCache.LENGTH_UNKNOWN) {
+            mBytesRemaining = contentLength - mReadPosition;
+        } else {
+            mBytesRemaining = C.LENGTH_UNSET;
+        }
+        openNextSource();
+        return mBytesRemaining;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int readLength) throws IOException {
+        if (readLength == 0) {
+            return 0;
+        }
+        if (mBytesRemaining == 0) {
+            return C.RESULT_END_OF_INPUT;
+        }
+        if (mBytesRemaining != C.LENGTH_UNSET) {
+            readLength = (int) Math.min(readLength, mBytesRemaining);
+        }
+        int read;
+        if (mReadingUpstream) {
+            read = mUpstream.read(buffer, offset, readLength);
+            if (read == C.RESULT_END_OF_INPUT) {
+                if (mBytesRemaining == C.LENGTH_UNSET) {
+                    mCache.setContentLength(mKey, mReadPosition);
+                }
+                return C.RESULT_END_OF_INPUT;
+            }
+            if (isWriteAdmitted()) {
+                try {
+                    mCache.write(mKey, mReadPosition, buffer, offset, read);
+                } catch (IOException e) {
+                    //写入缓存失败不影响播放
+                    VideoPlayerLog.e(VideoPlayerLog.TAG, "write cache failed, key=" + mKey, e);
+                }
+            }
+        } else {
+            read = mCache.read(mKey, mReadPosition, buffer, offset, readLength);
+            if (read == -1) {
+                //已缓存的区间读取完毕，切换到上游数据源
+                long contentLength = mCache.getContentLength(mKey);
+                if (contentLength != IVideoPlayerCache.LENGTH_UNKNOWN && mReadPosition >= contentLength) {
+                    return C.RESULT_END_OF_INPUT;
+                }
+                openNextSource();
+                return read(buffer, offset, readLength);
+            }
+        }
+        mReadPosition += read;
+        if (mBytesRemaining != C.LENGTH_UNSET) {
+            mBytesRemaining -= read;
+        }
+        return read;
+    }
+
+    private boolean isWriteAdmitted() {
+        if (mWriteRejected || !mCache.isWritable()) {
+            return false;
+        }
+        if (mAdmissionController != null && !mAdmissionController.isAdmitted(mKey)) {
+            mWriteRejected = true;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public Uri getUri() {
+        return mUri;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mUri = null;
+        mReadingUpstream = false;
+        if (mUpstreamOpened) {
+            mUpstreamOpened = false;
+            mUpstream.close();
+        }
+    }
+
+    /**
+     * 从当前读取位置开始，有缓存时从缓存读取，否则打开上游数据源
+     *
+     * @throws IOException
+     */
+    private void openNextSource() throws IOException {
+        if (mCache.getCachedLength(mKey, mReadPosition) > 0) {
+            mReadingUpstream = false;
+            return;
+        }
+        long length = mUpstream.open(new DataSpec(mUri, mReadPosition, mBytesRemaining, mKey, mFlags));
+        mUpstreamOpened = true;
+        mReadingUpstream = true;
+        if (length != C.LENGTH_UNSET && mBytesRemaining == C.LENGTH_UNSET) {
+            //请求到视频结尾，可以得知视频总长度
+            mBytesRemaining = length;
+            mCache.setContentLength(mKey, mReadPosition + length);
+        }
+    }
+
+}
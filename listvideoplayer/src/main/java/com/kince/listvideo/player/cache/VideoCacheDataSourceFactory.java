@@ -0,0 +1,31 @@
+package com.kince.listvideo.player.cache;
+
+import com.google.android.exoplayer2.upstream.DataSource;
+
+/**
+ * Created by Kince
+ * 创建{@link VideoCacheDataSource}
+ */
+public final class VideoCacheDataSourceFactory implements DataSource.Factory {
+
+    private final IVideoPlayerCache mCache;
+    private final DataSource.Factory mUpstreamFactory;
+    private final CacheAdmissionController mAdmissionController;
+
+    public VideoCacheDataSourceFactory(IVideoPlayerCache cache, DataSource.Factory upstreamFactory) {
+        this(cache, upstreamFactory, null);
+    }
+
+    public VideoCacheDataSourceFactory(IVideoPlayerCache cache, DataSource.Factory upstreamFactory,
+                                       CacheAdmissionController admissionController) {
+        mCache = cache;
+        mUpstreamFactory = upstreamFactory;
+        mAdmissionController = admissionController;
+    }
+
+    @Override
+    public DataSource createDataSource() {
+        return new VideoCacheDataSource(mCache, mUpstreamFactory.createDataSource(), mAdmissionController);
+    }
+
+}
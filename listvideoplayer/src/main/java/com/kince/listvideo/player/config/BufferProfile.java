@@ -0,0 +1,116 @@
+package com.kince.listvideo.player.config;
+
+/**
+ * Created by Kince
+ *
+ * 播放缓冲配置，按屏幕状态通过{@link VideoPlayerConfig.Builder#bufferProfile(int, BufferProfile)}设置，仅对ExoPlayer生效
+ *
+ * 1.已缓冲时长低于{@link #getMinBufferMs()}时持续加载，超过{@link #getMaxBufferMs()}时停止加载
+ * 2.已缓冲{@link #getBufferForPlaybackMs()}后开始播放，卡顿后需缓冲{@link #getBufferForPlaybackAfterRebufferMs()}才恢复播放
+ * 3.缓冲占用的内存达到{@link #getMaxBufferBytes()}后停止加载
+ *
+ * 列表滑动时使用缓冲少、起播快的{@link #createFastStart()}，全屏时使用缓冲深、不易卡顿的{@link #createDeep()}
+ */
+public final class BufferProfile {
+
+    /**
+     * 不限制缓冲占用的内存，由播放器按选中的轨道计算默认大小
+     */
+    public static final int BYTES_UNSET = -1;
+
+    private final int mMinBufferMs;
+    private final int mMaxBufferMs;
+    private final int mBufferForPlaybackMs;
+    private final int mBufferForPlaybackAfterRebufferMs;
+    private final int mMaxBufferBytes;
+
+    private BufferProfile(Builder builder) {
+        mMinBufferMs = builder.minBufferMs;
+        mMaxBufferMs = builder.maxBufferMs;
+        mBufferForPlaybackMs = builder.bufferForPlaybackMs;
+        mBufferForPlaybackAfterRebufferMs = builder.bufferForPlaybackAfterRebufferMs;
+        mMaxBufferBytes = builder.maxBufferBytes;
+    }
+
+    /**
+     * @return 列表滑动使用的配置，缓冲5~10秒，缓冲1秒即开始播放，最多占用4MB
+     */
+    public static BufferProfile createFastStart() {
+        return new Builder()
+                .bufferDurationsMs(5000, 10000, 1000, 2000)
+                .maxBufferBytes(4 * 1024 * 1024)
+                .build();
+    }
+
+    /**
+     * @return 全屏播放使用的配置，缓冲30~60秒，内存由播放器按选中的轨道计算
+     */
+    public static BufferProfile createDeep() {
+        return new Builder()
+                .bufferDurationsMs(30000, 60000, 2500, 5000)
+                .build();
+    }
+
+    public int getMinBufferMs() {
+        return mMinBufferMs;
+    }
+
+    public int getMaxBufferMs() {
+        return mMaxBufferMs;
+    }
+
+    public int getBufferForPlaybackMs() {
+        return mBufferForPlaybackMs;
+    }
+
+    public int getBufferForPlaybackAfterRebufferMs() {
+        return mBufferForPlaybackAfterRebufferMs;
+    }
+
+    public int getMaxBufferBytes() {
+        return mMaxBufferBytes;
+    }
+
+    public final static class Builder {
+
+        // 与ExoPlayer DefaultLoadControl的默认值一致
+        private int minBufferMs = 15000;
+        private int maxBufferMs = 30000;
+        private int bufferForPlaybackMs = 2500;
+        private int bufferForPlaybackAfterRebufferMs = 5000;
+        private int maxBufferBytes = BYTES_UNSET;
+
+        /**
+         * @param minBufferMs                      低于该时长时持续加载
+         * @param maxBufferMs                      超过该时长时停止加载
+         * @param bufferForPlaybackMs              起播或seek后开始播放需要缓冲的时长
+         * @param bufferForPlaybackAfterRebufferMs 卡顿后恢复播放需要缓冲的时长
+         * @return
+         */
+        public Builder bufferDurationsMs(int minBufferMs, int maxBufferMs, int bufferForPlaybackMs,
+                                         int bufferForPlaybackAfterRebufferMs) {
+            this.minBufferMs = minBufferMs;
+            this.maxBufferMs = maxBufferMs;
+            this.bufferForPlaybackMs = bufferForPlaybackMs;
+            this.bufferForPlaybackAfterRebufferMs = bufferForPlaybackAfterRebufferMs;
+            return this;
+        }
+
+        /**
+         * @param maxBufferBytes 缓冲占用内存的上限，{@link #BYTES_UNSET}为按选中的轨道计算
+         * @return
+         */
+        public Builder maxBufferBytes(int maxBufferBytes) {
+            this.maxBufferBytes = maxBufferBytes;
+            return this;
+        }
+
+        public BufferProfile build() {
+            if (maxBufferMs < minBufferMs) {
+                throw new IllegalArgumentException("maxBufferMs < minBufferMs");
+            }
+            return new BufferProfile(this);
+        }
+    }
+
+}
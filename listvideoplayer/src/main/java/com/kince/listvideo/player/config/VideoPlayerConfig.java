@@ -3,10 +3,15 @@ package com.kince.listvideo.player.config;
 import android.content.Context;
 
 import com.danikula.videocache.HttpProxyCacheServer;
-import com.danikula.videocache.ProxyCacheUtils;
-import com.danikula.videocache.file.Md5FileNameGenerator;
+import com.kince.listvideo.player.cache.CacheEvictionPolicy;
+import com.kince.listvideo.player.cache.ChunkedDiskVideoPlayerCache;
+import com.kince.listvideo.player.cache.IVideoPlayerCache;
+import com.kince.listvideo.player.cache.ProxyVideoPlayerCache;
 import com.kince.listvideo.player.factory.IVideoPlayerFactory;
 import com.kince.listvideo.player.factory.MediaPlayerFactory;
+import com.kince.listvideo.player.network.HttpDataSourceProvider;
+import com.kince.listvideo.player.network.VideoHttpClient;
+import com.kince.listvideo.player.state.ScreenViewState;
 import com.kince.listvideo.player.utils.Utils;
 
 import java.io.File;
@@ -17,8 +22,29 @@ import java.io.File;
  */
 public final class VideoPlayerConfig {
 
-    // 视频最大缓存数量
-    private static final int DEFAULT_VIDEO_CACHE_COUNT = 10;
+    // 播放器实例池默认大小，为1时与单实例播放器行为一致
+    private static final int DEFAULT_PLAYER_POOL_SIZE = 1;
+
+    // 列表（含小窗口）播放时默认的视频码率上限，约为480p
+    private static final int DEFAULT_LIST_MAX_VIDEO_BITRATE = 1000000;
+
+    // 默认缓冲配置
+    private static final BufferProfile FAST_START_BUFFER_PROFILE = BufferProfile.createFastStart();
+    private static final BufferProfile DEEP_BUFFER_PROFILE = BufferProfile.createDeep();
+
+    // 分块缓存在缓存目录下使用的子目录
+    private static final String CHUNK_CACHE_DIR_NAME = "chunks";
+
+    /**
+     * 缓存模式：播放器通过本地代理地址播放，由代理缓存视频，所有播放器均可使用
+     */
+    public static final int CACHE_MODE_PROXY = 1;
+
+    /**
+     * 缓存模式：支持的播放器（如ExoPlayer）直接读写分块缓存{@link ChunkedDiskVideoPlayerCache}，
+     * 不经过本地代理；不支持的播放器（如MediaPlayer）仍通过代理缓存
+     */
+    public static final int CACHE_MODE_DATA_SOURCE = 2;
 
     /* 通过配置播放器工厂可以实现自定义播放器，不管是用MediaPlayer还是ExoPlayer，还是其他的视频播放库均可以自行定义*/
     private IVideoPlayerFactory mPlayerFactory;
@@ -26,21 +52,83 @@ public final class VideoPlayerConfig {
     // 是否开启自动小窗口播放功能
     private boolean mSmallWindowPlayEnable;
 
+    // 切换全屏、小窗口时是否保持播放，不暂停
+    private boolean mSeamlessTransitionEnable;
+
     // 缓存功能是否开启
     private boolean mCacheEnable;
 
     // 日志输出功能是否开启
     private boolean mLogEnable;
 
+    // 播放器实例池大小
+    private int mPlayerPoolSize;
+
+    // 列表（含小窗口）播放时的视频码率上限
+    private int mListMaxVideoBitrate;
+
+    // 按屏幕状态设置的缓冲配置，下标为屏幕状态
+    private BufferProfile[] mBufferProfiles;
+
+    // 全屏播放时的视频码率上限
+    private int mFullScreenMaxVideoBitrate;
+
+    // ExoPlayer使用的HttpDataSource实现
+    private HttpDataSourceProvider mHttpDataSourceProvider;
+
+    // 网络超时时间，单位：ms
+    private int mConnectTimeoutMs;
+    private int mReadTimeoutMs;
+
+    // 是否调整进程内HttpURLConnection连接池的系统属性
+    private boolean mConnectionPoolTuningEnable;
+
     /* 缓存代理实现，{@link #mCacheEnable}必须为true才能生效 */
     private HttpProxyCacheServer mCacheProxy;
 
+    /* 视频缓存实现，{@link #mCacheEnable}必须为true才能生效 */
+    private IVideoPlayerCache mCache;
+
+    // 缓存模式
+    private int mCacheMode;
+
+    // 缓存淘汰策略
+    private CacheEvictionPolicy mCacheEvictionPolicy;
+
+    // 供不支持直接读写缓存的播放器使用的代理缓存，按需创建
+    private ProxyVideoPlayerCache mProxyCache;
+
+    private Context mContext;
+
     private VideoPlayerConfig(Builder builder) {
+        this.mContext = builder.context == null ? null : builder.context.getApplicationContext();
         this.mPlayerFactory = builder.playerFactory;
         this.mSmallWindowPlayEnable = builder.smallWindowPlayEnable;
+        this.mSeamlessTransitionEnable = builder.seamlessTransitionEnable;
         this.mCacheEnable = builder.cacheEnable;
         this.mCacheProxy = builder.proxy;
+        this.mCache = builder.cache;
         this.mLogEnable = builder.logEnable;
+        this.mPlayerPoolSize = builder.playerPoolSize;
+        this.mListMaxVideoBitrate = builder.listMaxVideoBitrate;
+        this.mBufferProfiles = builder.bufferProfiles;
+        this.mFullScreenMaxVideoBitrate = builder.fullScreenMaxVideoBitrate;
+        this.mCacheMode = builder.cacheMode;
+        this.mHttpDataSourceProvider = builder.httpDataSourceProvider;
+        this.mConnectTimeoutMs = builder.connectTimeoutMs;
+        this.mReadTimeoutMs = builder.readTimeoutMs;
+        this.mConnectionPoolTuningEnable = builder.connectionPoolTuningEnable;
+        this.mCacheEvictionPolicy = builder.cacheEvictionPolicy;
+        if (mCache instanceof ProxyVideoPlayerCache) {
+            this.mProxyCache = (ProxyVideoPlayerCache) mCache;
+        }
+    }
+
+    /**
+     * @return ApplicationContext，通过{@link Builder#Builder()}创建配置时为null
+     */
+    public Context getContext() {
+        return mContext;
     }
 
     public IVideoPlayerFactory getPlayerFactory() {
@@ -51,6 +139,10 @@ public final class VideoPlayerConfig {
         return mSmallWindowPlayEnable;
     }
 
+    public boolean isSeamlessTransitionEnable() {
+        return mSeamlessTransitionEnable;
+    }
+
     public boolean isCacheEnable() {
         return mCacheEnable;
     }
@@ -59,11 +151,86 @@ public final class VideoPlayerConfig {
         return mCacheProxy;
     }
 
+    public IVideoPlayerCache getCache() {
+        return mCache;
+    }
+
+    /**
+     * 获取基于缓存代理的视频缓存，供只能通过地址播放的播放器使用
+     * {@link #getCache()}不是代理缓存时按需创建，未开启缓存或没有Context时返回null
+     *
+     * @return
+     */
+    public synchronized ProxyVideoPlayerCache getProxyCache() {
+        if (mProxyCache == null && mCacheEnable && mContext != null) {
+            mProxyCache = ProxyVideoPlayerCache.create(mContext, new File(Utils.getCacheDir(mContext)),
+                    mCacheEvictionPolicy);
+            mCacheProxy = mProxyCache.getCacheProxy();
+        }
+        return mProxyCache;
+    }
+
+    public boolean isLogEnable() {
+        return mLogEnable;
+    }
+
+    public int getCacheMode() {
+        return mCacheMode;
+    }
+
+    public CacheEvictionPolicy getCacheEvictionPolicy() {
+        return mCacheEvictionPolicy;
+    }
+
+    public int getPlayerPoolSize() {
+        return mPlayerPoolSize;
+    }
+
+    /**
+     * 获取指定屏幕状态使用的缓冲配置
+     *
+     * @param screenState {@link ScreenViewState}
+     * @return 未设置时全屏为{@link BufferProfile#createDeep()}，其余为{@link BufferProfile#createFastStart()}
+     */
+    public BufferProfile getBufferProfile(int screenState) {
+        BufferProfile profile = screenState >= 0 && screenState < mBufferProfiles.length
+                ? mBufferProfiles[screenState] : null;
+        if (profile != null) {
+            return profile;
+        }
+        return ScreenViewState.isFullScreen(screenState) ? DEEP_BUFFER_PROFILE : FAST_START_BUFFER_PROFILE;
+    }
+
+    public int getListMaxVideoBitrate() {
+        return mListMaxVideoBitrate;
+    }
+
+    public int getFullScreenMaxVideoBitrate() {
+        return mFullScreenMaxVideoBitrate;
+    }
+
+    public HttpDataSourceProvider getHttpDataSourceProvider() {
+        return mHttpDataSourceProvider;
+    }
+
+    public int getConnectTimeoutMs() {
+        return mConnectTimeoutMs;
+    }
+
+    public int getReadTimeoutMs() {
+        return mReadTimeoutMs;
+    }
+
+    public boolean isConnectionPoolTuningEnable() {
+        return mConnectionPoolTuningEnable;
+    }
+
     public final static class Builder {
 
         private Context context;
         private IVideoPlayerFactory playerFactory;
         private boolean smallWindowPlayEnable = false;
+        private boolean seamlessTransitionEnable = false;
 
         // 是否开启缓存，默认不开启
         private boolean cacheEnable = false;
@@ -74,6 +241,35 @@ public final class VideoPlayerConfig {
         // 缓存代理实现
         private HttpProxyCacheServer proxy;
 
+        // 视频缓存实现
+        private IVideoPlayerCache cache;
+
+        // 缓存淘汰策略
+        private CacheEvictionPolicy cacheEvictionPolicy;
+
+        // 缓存模式
+        private int cacheMode = CACHE_MODE_PROXY;
+
+        // 播放器实例池大小
+        private int playerPoolSize = DEFAULT_PLAYER_POOL_SIZE;
+
+        // 视频码率上限
+        private int listMaxVideoBitrate = DEFAULT_LIST_MAX_VIDEO_BITRATE;
+        private int fullScreenMaxVideoBitrate = Integer.MAX_VALUE;
+
+        // HttpDataSource实现
+        private HttpDataSourceProvider httpDataSourceProvider = VideoHttpClient.DEFAULT_PROVIDER;
+
+        // 网络超时时间
+        private int connectTimeoutMs = VideoHttpClient.DEFAULT_CONNECT_TIMEOUT_MS;
+        private int readTimeoutMs = VideoHttpClient.DEFAULT_READ_TIMEOUT_MS;
+
+        // 是否调整连接池参数，默认不调整
+        private boolean connectionPoolTuningEnable = false;
+
+        // 缓冲配置，下标为屏幕状态
+        private BufferProfile[] bufferProfiles = new BufferProfile[ScreenViewState.SCREEN_STATE_SMALL_WINDOW + 1];
+
         /**
          * @param ctx context.getApplicationContext()
          */
@@ -107,6 +303,18 @@ public final class VideoPlayerConfig {
             return this;
         }
 
+        /**
+         * 开启无缝切换，默认不开启
+         * 切换全屏、小窗口时不再暂停和恢复播放，解码器持续输出，只移动显示视频的TextureView，
+         * 可通过{@link com.kince.listvideo.player.player.VideoPlayerManager#getFirstFrameCount()}确认切换时画面没有中断
+         *
+         * @return
+         */
+        public Builder enableSeamlessTransition() {
+            this.seamlessTransitionEnable = true;
+            return this;
+        }
+
         /**
          * 是否开启视频缓存功能
          *
@@ -134,30 +342,153 @@ public final class VideoPlayerConfig {
             return this;
         }
 
+        /**
+         * 设置视频缓存实现(请先通过{@link #enableCache(boolean)}开启缓存功能，否则此设置无效
+         * 不设置时按{@link #cacheMode(int)}使用{@link ProxyVideoPlayerCache}或{@link ChunkedDiskVideoPlayerCache}
+         *
+         * @param cache
+         * @return
+         */
+        public Builder cache(IVideoPlayerCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * 设置默认缓存的淘汰策略，按缓存总字节数、过期时间和访问频率淘汰缓存，
+         * 不设置时使用{@link CacheEvictionPolicy#createDefault()}
+         * 通过{@link #cacheProxy(HttpProxyCacheServer)}或{@link #cache(IVideoPlayerCache)}自定义缓存时此设置无效
+         *
+         * @param policy
+         * @return
+         */
+        public Builder cacheEvictionPolicy(CacheEvictionPolicy policy) {
+            this.cacheEvictionPolicy = policy;
+            return this;
+        }
+
+        /**
+         * 设置缓存模式，默认为{@link #CACHE_MODE_PROXY}
+         * {@link #CACHE_MODE_DATA_SOURCE}省去了本地代理的转发，适用于ExoPlayer
+         * 通过{@link #cacheProxy(HttpProxyCacheServer)}或{@link #cache(IVideoPlayerCache)}自定义缓存时此设置无效
+         *
+         * @param mode {@link #CACHE_MODE_PROXY}或{@link #CACHE_MODE_DATA_SOURCE}
+         * @return
+         */
+        public Builder cacheMode(int mode) {
+            this.cacheMode = mode;
+            return this;
+        }
+
+        /**
+         * 设置播放器实例池大小，大于1时可以为列表中即将播放的视频预加载播放器，
+         * 滑动切换视频时直接使用已prepare完成的播放器，默认为1
+         *
+         * @param size 同时存在的播放器实例的最大数量
+         * @return
+         */
+        public Builder playerPoolSize(int size) {
+            this.playerPoolSize = size;
+            return this;
+        }
+
+        /**
+         * 设置自适应码率视频（HLS、DASH等）的码率上限，起播时按当前屏幕状态的上限选择清晰度，
+         * 列表中的小尺寸视频不需要解码高码率的视频，默认列表中约为480p，全屏不限制
+         * 仅对ExoPlayer生效
+         *
+         * @param listBitrate       列表（含小窗口）播放时的码率上限，单位bit/s
+         * @param fullScreenBitrate 全屏播放时的码率上限，单位bit/s，{@link Integer#MAX_VALUE}为不限制
+         * @return
+         */
+        public Builder maxVideoBitrate(int listBitrate, int fullScreenBitrate) {
+            this.listMaxVideoBitrate = listBitrate;
+            this.fullScreenMaxVideoBitrate = fullScreenBitrate;
+            return this;
+        }
+
+        /**
+         * 设置指定屏幕状态下的缓冲配置，仅对ExoPlayer生效
+         * 不设置时全屏使用{@link BufferProfile#createDeep()}，列表和小窗口使用{@link BufferProfile#createFastStart()}
+         *
+         * @param screenState {@link ScreenViewState}
+         * @param profile
+         * @return
+         */
+        public Builder bufferProfile(int screenState, BufferProfile profile) {
+            if (screenState < 0 || screenState >= bufferProfiles.length) {
+                throw new IllegalArgumentException("Unknown screen state: " + screenState);
+            }
+            this.bufferProfiles[screenState] = profile;
+            return this;
+        }
+
+        /**
+         * 替换ExoPlayer请求视频所用的HttpDataSource，例如基于OkHttp的实现，默认使用HttpURLConnection
+         *
+         * @param provider
+         * @return
+         */
+        public Builder httpDataSourceProvider(HttpDataSourceProvider provider) {
+            this.httpDataSourceProvider = provider == null ? VideoHttpClient.DEFAULT_PROVIDER : provider;
+            return this;
+        }
+
+        /**
+         * 设置网络超时时间，默认均为8s
+         * 播放过程中可通过{@link com.kince.listvideo.player.player.VideoPlayerManager#setNetworkTimeout(int)}修改
+         *
+         * @param connectTimeoutMs 连接超时时间，单位：ms
+         * @param readTimeoutMs    读取超时时间，单位：ms
+         * @return
+         */
+        public Builder networkTimeout(int connectTimeoutMs, int readTimeoutMs) {
+            if (connectTimeoutMs <= 0 || readTimeoutMs <= 0) {
+                throw new IllegalArgumentException("Timeout must be positive");
+            }
+            this.connectTimeoutMs = connectTimeoutMs;
+            this.readTimeoutMs = readTimeoutMs;
+            return this;
+        }
+
+        /**
+         * 是否调大HttpURLConnection连接池的空闲连接数和保活时长，默认不调整
+         * 连接池参数通过系统属性设置，对整个进程生效，且只在首次发起网络请求前设置才有效；
+         * 应用已自行设置的属性不会被覆盖，详见{@link VideoHttpClient#configureConnectionPool()}
+         *
+         * @param enable
+         * @return
+         */
+        public Builder enableConnectionPoolTuning(boolean enable) {
+            this.connectionPoolTuningEnable = enable;
+            return this;
+        }
+
         public VideoPlayerConfig build() {
-            playerFactory.logEnable(logEnable);
             if (playerFactory == null) {
                 playerFactory = new MediaPlayerFactory();
             }
-            if (cacheEnable && proxy == null) {
-                proxy = buildCacheProxy();
+            playerFactory.logEnable(logEnable);
+            if (cacheEvictionPolicy == null) {
+                cacheEvictionPolicy = CacheEvictionPolicy.createDefault();
+            }
+            if (cacheEnable && cache == null) {
+                if (proxy == null && cacheMode == CACHE_MODE_DATA_SOURCE) {
+                    cache = new ChunkedDiskVideoPlayerCache(
+                            new File(Utils.getCacheDir(context), CHUNK_CACHE_DIR_NAME),
+                            ChunkedDiskVideoPlayerCache.DEFAULT_CHUNK_SIZE, cacheEvictionPolicy);
+                } else if (proxy == null) {
+                    ProxyVideoPlayerCache proxyCache = ProxyVideoPlayerCache.create(context,
+                            new File(Utils.getCacheDir(context)), cacheEvictionPolicy);
+                    proxy = proxyCache.getCacheProxy();
+                    cache = proxyCache;
+                } else {
+                    cache = new ProxyVideoPlayerCache(proxy,
+                            context == null ? null : new File(Utils.getCacheDir(context)));
+                }
             }
             return new VideoPlayerConfig(this);
         }
-
-        private HttpProxyCacheServer buildCacheProxy() {
-            return new HttpProxyCacheServer
-                    .Builder(context.getApplicationContext())
-                    .cacheDirectory(new File(Utils.getCacheDir(context)))
-                    .fileNameGenerator(new Md5FileNameGenerator() {
-                        @Override
-                        public String generate(String url) {
-                            return ProxyCacheUtils.computeMD5(url);
-                        }
-                    })
-                    .maxCacheFilesCount(DEFAULT_VIDEO_CACHE_COUNT)
-                    .build();
-        }
     }
 
 }
@@ -42,6 +42,10 @@ import java.util.Locale;
 /**
  * Created by Kince
  * Logs player events using {@link Log}.
+ *
+ * {@link #MODE_LOG}：输出事件日志，会在播放线程中格式化字符串，仅用于调试
+ * {@link #MODE_METRICS}：将事件汇总到{@link ExoPlayerMetrics}，不做字符串格式化，通过{@link #getMetrics()}读取
+ * 两种模式可以同时开启
  */
 public final class ExoPlayerLogger implements ExoPlayer.EventListener,
         AudioRendererEventListener, VideoRendererEventListener, AdaptiveMediaSourceEventListener,
@@ -59,27 +63,79 @@ public final class ExoPlayerLogger implements ExoPlayer.EventListener,
         TIME_FORMAT.setGroupingUsed(false);
     }
 
+    /**
+     * 输出事件日志
+     */
+    public static final int MODE_LOG = 1;
+    /**
+     * 汇总播放指标
+     */
+    public static final int MODE_METRICS = 1 << 1;
+
     private final MappingTrackSelector trackSelector;
     private final Timeline.Window window;
     private final Timeline.Period period;
     private final long startTimeMs;
+    private final boolean mLogEnabled;
+    private final ExoPlayerMetrics mMetrics;
 
     public ExoPlayerLogger(MappingTrackSelector trackSelector) {
+        this(trackSelector, MODE_LOG);
+    }
+
+    /**
+     * @param trackSelector
+     * @param mode {@link #MODE_LOG}、{@link #MODE_METRICS}的组合
+     */
+    public ExoPlayerLogger(MappingTrackSelector trackSelector, int mode) {
         this.trackSelector = trackSelector;
+        mLogEnabled = (mode & MODE_LOG) != 0;
+        mMetrics = (mode & MODE_METRICS) != 0 ? new ExoPlayerMetrics() : null;
         window = new Timeline.Window();
         period = new Timeline.Period();
         startTimeMs = SystemClock.elapsedRealtime();
     }
 
+    /**
+     * @return 未开启{@link #MODE_METRICS}时返回null
+     */
+    public ExoPlayerMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * 开始seek时调用，seek引起的缓冲不计入卡顿
+     */
+    public void onSeekStarted() {
+        if (mMetrics != null) {
+            mMetrics.onSeekStarted();
+        }
+    }
+
     // ExoPlayer.EventListener
 
     @Override
     public void onLoadingChanged(boolean isLoading) {
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "loading [" + isLoading + "]");
     }
 
     @Override
     public void onPlayerStateChanged(boolean playWhenReady, int state) {
+        if (mMetrics != null) {
+            if (state == ExoPlayer.STATE_BUFFERING) {
+                mMetrics.onBuffering();
+            } else if (state == ExoPlayer.STATE_READY) {
+                mMetrics.onReady();
+            } else {
+                mMetrics.onIdle();
+            }
+        }
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "state [" + getSessionTimeString() + ", " + playWhenReady + ", "
                 + getStateString(state) + "]");
     }
@@ -90,6 +146,9 @@ public final class ExoPlayerLogger implements ExoPlayer.EventListener,
 
     @Override
     public void onPositionDiscontinuity() {
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "positionDiscontinuity");
     }
 
@@ -104,11 +163,17 @@ public final class ExoPlayerLogger implements ExoPlayer.EventListener,
 
     @Override
     public void onPlayerError(ExoPlaybackException e) {
+        if (!mLogEnabled) {
+            return;
+        }
         Log.e(TAG, "playerFailed [" + getSessionTimeString() + "]", e);
     }
 
     @Override
     public void onTracksChanged(TrackGroupArray ignored, TrackSelectionArray trackSelections) {
+        if (!mLogEnabled) {
+            return;
+        }
         MappedTrackInfo mappedTrackInfo = trackSelector.getCurrentMappedTrackInfo();
         if (mappedTrackInfo == null) {
             Log.d(TAG, "Tracks []");
@@ -177,6 +242,9 @@ public final class ExoPlayerLogger implements ExoPlayer.EventListener,
 
     @Override
     public void onMetadata(Metadata metadata) {
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "onMetadata [");
         printMetadata(metadata, "  ");
         Log.d(TAG, "]");
@@ -186,33 +254,57 @@ public final class ExoPlayerLogger implements ExoPlayer.EventListener,
 
     @Override
     public void onAudioEnabled(DecoderCounters counters) {
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "audioEnabled [" + getSessionTimeString() + "]");
     }
 
     @Override
     public void onAudioSessionId(int audioSessionId) {
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "audioSessionId [" + audioSessionId + "]");
     }
 
     @Override
     public void onAudioDecoderInitialized(String decoderName, long elapsedRealtimeMs,
                                           long initializationDurationMs) {
+        if (mMetrics != null) {
+            mMetrics.onAudioDecoderInitialized(initializationDurationMs);
+        }
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "audioDecoderInitialized [" + getSessionTimeString() + ", " + decoderName + "]");
     }
 
     @Override
     public void onAudioInputFormatChanged(Format format) {
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "audioFormatChanged [" + getSessionTimeString() + ", " + Format.toLogString(format)
                 + "]");
     }
 
     @Override
     public void onAudioDisabled(DecoderCounters counters) {
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "audioDisabled [" + getSessionTimeString() + "]");
     }
 
     @Override
     public void onAudioTrackUnderrun(int bufferSize, long bufferSizeMs, long elapsedSinceLastFeedMs) {
+        if (mMetrics != null) {
+            mMetrics.onAudioTrackUnderrun();
+        }
+        if (!mLogEnabled) {
+            return;
+        }
         printInternalError("audioTrackUnderrun [" + bufferSize + ", " + bufferSizeMs + ", "
                 + elapsedSinceLastFeedMs + "]", null);
     }
@@ -221,28 +313,49 @@ public final class ExoPlayerLogger implements ExoPlayer.EventListener,
 
     @Override
     public void onVideoEnabled(DecoderCounters counters) {
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "videoEnabled [" + getSessionTimeString() + "]");
     }
 
     @Override
     public void onVideoDecoderInitialized(String decoderName, long elapsedRealtimeMs,
                                           long initializationDurationMs) {
+        if (mMetrics != null) {
+            mMetrics.onVideoDecoderInitialized(initializationDurationMs);
+        }
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "videoDecoderInitialized [" + getSessionTimeString() + ", " + decoderName + "]");
     }
 
     @Override
     public void onVideoInputFormatChanged(Format format) {
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "videoFormatChanged [" + getSessionTimeString() + ", " + Format.toLogString(format)
                 + "]");
     }
 
     @Override
     public void onVideoDisabled(DecoderCounters counters) {
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "videoDisabled [" + getSessionTimeString() + "]");
     }
 
     @Override
     public void onDroppedFrames(int count, long elapsed) {
+        if (mMetrics != null) {
+            mMetrics.onDroppedFrames(count);
+        }
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "droppedFrames [" + getSessionTimeString() + ", " + count + "]");
     }
 
@@ -261,21 +374,33 @@ public final class ExoPlayerLogger implements ExoPlayer.EventListener,
 
     @Override
     public void onDrmSessionManagerError(Exception e) {
+        if (!mLogEnabled) {
+            return;
+        }
         printInternalError("drmSessionManagerError", e);
     }
 
     @Override
     public void onDrmKeysRestored() {
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "drmKeysRestored [" + getSessionTimeString() + "]");
     }
 
     @Override
     public void onDrmKeysRemoved() {
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "drmKeysRemoved [" + getSessionTimeString() + "]");
     }
 
     @Override
     public void onDrmKeysLoaded() {
+        if (!mLogEnabled) {
+            return;
+        }
         Log.d(TAG, "drmKeysLoaded [" + getSessionTimeString() + "]");
     }
 
@@ -283,6 +408,12 @@ public final class ExoPlayerLogger implements ExoPlayer.EventListener,
 
     @Override
     public void onLoadError(IOException error) {
+        if (mMetrics != null) {
+            mMetrics.onLoadError();
+        }
+        if (!mLogEnabled) {
+            return;
+        }
         printInternalError("loadError", error);
     }
 
@@ -300,6 +431,12 @@ public final class ExoPlayerLogger implements ExoPlayer.EventListener,
                             int trackSelectionReason, Object trackSelectionData, long mediaStartTimeMs,
                             long mediaEndTimeMs, long elapsedRealtimeMs, long loadDurationMs, long bytesLoaded,
                             IOException error, boolean wasCanceled) {
+        if (mMetrics != null) {
+            mMetrics.onLoadError();
+        }
+        if (!mLogEnabled) {
+            return;
+        }
         printInternalError("loadError", error);
     }
 
@@ -314,7 +451,9 @@ public final class ExoPlayerLogger implements ExoPlayer.EventListener,
     public void onLoadCompleted(DataSpec dataSpec, int dataType, int trackType, Format trackFormat,
                                 int trackSelectionReason, Object trackSelectionData, long mediaStartTimeMs,
                                 long mediaEndTimeMs, long elapsedRealtimeMs, long loadDurationMs, long bytesLoaded) {
-        // Do nothing.
+        if (mMetrics != null) {
+            mMetrics.onLoadCompleted(loadDurationMs, bytesLoaded);
+        }
     }
 
     @Override
@@ -0,0 +1,224 @@
+package com.kince.listvideo.player.logger;
+
+import android.os.SystemClock;
+
+/**
+ * Created by Kince
+ *
+ * ExoPlayer播放指标，由{@link ExoPlayerLogger}在播放线程中记录
+ *
+ * 记录时只更新基本类型的计数器与环形缓冲区，不做字符串格式化，也不产生对象分配；
+ * 通过{@link #snapshot(Snapshot)}在任意线程读取
+ */
+public final class ExoPlayerMetrics {
+
+    // 环形缓冲区保存的最近记录数
+    public static final int RECENT_SIZE = 32;
+    // 统计丢帧数的时间窗口
+    private static final long DROPPED_FRAMES_WINDOW_MS = 60 * 1000;
+    // 统计丢帧数时保存的最近丢帧事件数
+    private static final int DROPPED_FRAMES_EVENTS = 64;
+
+    /**
+     * 播放指标快照
+     */
+    public static final class Snapshot {
+
+        /**
+         * 已加载的字节数
+         */
+        public long bytesLoaded;
+        /**
+         * 加载完成的次数
+         */
+        public int loadCount;
+        /**
+         * 加载失败的次数
+         */
+        public int loadErrorCount;
+        /**
+         * 加载总耗时，单位毫秒
+         */
+        public long totalLoadDurationMs;
+        /**
+         * 最近的加载耗时，单位毫秒，有效个数为{@link #recentLoadCount}
+         */
+        public final long[] recentLoadDurationsMs = new long[RECENT_SIZE];
+        /**
+         * 最近的加载吞吐量，单位bit/s，有效个数为{@link #recentLoadCount}
+         */
+        public final long[] recentThroughputsBps = new long[RECENT_SIZE];
+        public int recentLoadCount;
+        /**
+         * 丢帧总数
+         */
+        public long droppedFrames;
+        /**
+         * 最近一分钟内的丢帧数
+         */
+        public int droppedFramesPerMinute;
+        /**
+         * 播放过程中（不含起播与seek）的缓冲次数
+         */
+        public int rebufferCount;
+        /**
+         * 播放过程中的缓冲总时长，单位毫秒，包含正在进行的缓冲
+         */
+        public long rebufferDurationMs;
+        /**
+         * 最近一次视频解码器初始化耗时，单位毫秒
+         */
+        public long videoDecoderInitMs;
+        /**
+         * 最近一次音频解码器初始化耗时，单位毫秒
+         */
+        public long audioDecoderInitMs;
+        /**
+         * AudioTrack欠载次数
+         */
+        public int audioUnderrunCount;
+
+    }
+
+    private long mBytesLoaded;
+    private int mLoadCount;
+    private int mLoadErrorCount;
+    private long mTotalLoadDurationMs;
+    private final LongRingBuffer mLoadDurations = new LongRingBuffer(RECENT_SIZE);
+    private final LongRingBuffer mThroughputs = new LongRingBuffer(RECENT_SIZE);
+
+    private long mDroppedFrames;
+    private final LongRingBuffer mDroppedFrameTimes = new LongRingBuffer(DROPPED_FRAMES_EVENTS);
+    private final LongRingBuffer mDroppedFrameCounts = new LongRingBuffer(DROPPED_FRAMES_EVENTS);
+
+    private int mRebufferCount;
+    private long mRebufferDurationMs;
+    // 正在进行的缓冲开始时间，未缓冲时为-1
+    private long mRebufferStartMs = -1;
+    // 是否已经开始播放，起播前的缓冲不计入
+    private boolean mReady;
+    // 是否正在seek，seek引起的缓冲不计入
+    private boolean mSeeking;
+
+    private long mVideoDecoderInitMs;
+    private long mAudioDecoderInitMs;
+    private int mAudioUnderrunCount;
+
+    synchronized void onLoadCompleted(long loadDurationMs, long bytesLoaded) {
+        mBytesLoaded += bytesLoaded;
+        mLoadCount++;
+        mTotalLoadDurationMs += loadDurationMs;
+        mLoadDurations.add(loadDurationMs);
+        mThroughputs.add(loadDurationMs <= 0 ? 0 : bytesLoaded * 8000 / loadDurationMs);
+    }
+
+    synchronized void onLoadError() {
+        mLoadErrorCount++;
+    }
+
+    synchronized void onDroppedFrames(int count) {
+        mDroppedFrames += count;
+        mDroppedFrameTimes.add(SystemClock.elapsedRealtime());
+        mDroppedFrameCounts.add(count);
+    }
+
+    synchronized void onVideoDecoderInitialized(long initializationDurationMs) {
+        mVideoDecoderInitMs = initializationDurationMs;
+    }
+
+    synchronized void onAudioDecoderInitialized(long initializationDurationMs) {
+        mAudioDecoderInitMs = initializationDurationMs;
+    }
+
+    synchronized void onAudioTrackUnderrun() {
+        mAudioUnderrunCount++;
+    }
+
+    synchronized void onSeekStarted() {
+        mSeeking = true;
+    }
+
+    synchronized void onBuffering() {
+        if (mReady && !mSeeking && mRebufferStartMs == -1) {
+            mRebufferCount++;
+            mRebufferStartMs = SystemClock.elapsedRealtime();
+        }
+    }
+
+    synchronized void onReady() {
+        endRebuffer();
+        mReady = true;
+        mSeeking = false;
+    }
+
+    /**
+     * 停止或播放结束
+     */
+    synchronized void onIdle() {
+        endRebuffer();
+        mReady = false;
+        mSeeking = false;
+    }
+
+    private void endRebuffer() {
+        if (mRebufferStartMs != -1) {
+            mRebufferDurationMs += SystemClock.elapsedRealtime() - mRebufferStartMs;
+            mRebufferStartMs = -1;
+        }
+    }
+
+    /**
+     * 将当前指标写入快照，可复用快照对象避免分配
+     *
+     * @param out
+     * @return out
+     */
+    public synchronized Snapshot snapshot(Snapshot out) {
+        long now = SystemClock.elapsedRealtime();
+        out.bytesLoaded = mBytesLoaded;
+        out.loadCount = mLoadCount;
+        out.loadErrorCount = mLoadErrorCount;
+        out.totalLoadDurationMs = mTotalLoadDurationMs;
+        out.recentLoadCount = mLoadDurations.copyTo(out.recentLoadDurationsMs);
+        mThroughputs.copyTo(out.recentThroughputsBps);
+        out.droppedFrames = mDroppedFrames;
+        int droppedFramesPerMinute = 0;
+        for (int i = mDroppedFrameTimes.size() - 1; i >= 0; i--) {
+            if (now - mDroppedFrameTimes.get(i) > DROPPED_FRAMES_WINDOW_MS) {
+                break;
+            }
+            droppedFramesPerMinute += mDroppedFrameCounts.get(i);
+        }
+        out.droppedFramesPerMinute = droppedFramesPerMinute;
+        out.rebufferCount = mRebufferCount;
+        out.rebufferDurationMs = mRebufferDurationMs
+                + (mRebufferStartMs == -1 ? 0 : now - mRebufferStartMs);
+        out.videoDecoderInitMs = mVideoDecoderInitMs;
+        out.audioDecoderInitMs = mAudioDecoderInitMs;
+        out.audioUnderrunCount = mAudioUnderrunCount;
+        return out;
+    }
+
+    public Snapshot snapshot() {
+        return snapshot(new Snapshot());
+    }
+
+    public synchronized void reset() {
+        mBytesLoaded = 0;
+        mLoadCount = 0;
+        mLoadErrorCount = 0;
+        mTotalLoadDurationMs = 0;
+        mLoadDurations.clear();
+        mThroughputs.clear();
+        mDroppedFrames = 0;
+        mDroppedFrameTimes.clear();
+        mDroppedFrameCounts.clear();
+        mRebufferCount = 0;
+        mRebufferDurationMs = 0;
+        mRebufferStartMs = -1;
+        mVideoDecoderInitMs = 0;
+        mAudioDecoderInitMs = 0;
+        mAudioUnderrunCount = 0;
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.kince.listvideo.player.logger;
+
+/**
+ * Created by Kince
+ * 保存最近若干个long值的环形缓冲区，写入时不产生对象分配，非线程安全
+ */
+final class LongRingBuffer {
+
+    private final long[] mValues;
+    private int mNext;
+    private int mSize;
+
+    LongRingBuffer(int capacity) {
+        mValues = new long[capacity];
+    }
+
+    void add(long value) {
+        mValues[mNext] = value;
+        mNext = (mNext + 1) % mValues.length;
+        if (mSize < mValues.length) {
+            mSize++;
+        }
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * @param index 0为最早写入的值
+     * @return
+     */
+    long get(int index) {
+        return mValues[(mNext - mSize + index + mValues.length) % mValues.length];
+    }
+
+    /**
+     * 按写入顺序复制到数组中
+     *
+     * @param out 长度不足时只复制最近的部分
+     * @return 复制的个数
+     */
+    int copyTo(long[] out) {
+        int count = Math.min(out.length, mSize);
+        int offset = mSize - count;
+        for (int i = 0; i < count; i++) {
+            out[i] = get(offset + i);
+        }
+        return count;
+    }
+
+    void clear() {
+        mNext = 0;
+        mSize = 0;
+    }
+
+}
@@ -17,4 +17,8 @@ public class BackPressedMessage extends Message {
         return mScreenState;
     }
 
+    void setScreenState(int screenState) {
+        mScreenState = screenState;
+    }
+
 }
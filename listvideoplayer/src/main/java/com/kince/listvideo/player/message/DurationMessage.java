@@ -17,4 +17,8 @@ public class DurationMessage extends Message {
         return mDuration;
     }
 
+    void setDuration(int duration) {
+        mDuration = duration;
+    }
+
 }
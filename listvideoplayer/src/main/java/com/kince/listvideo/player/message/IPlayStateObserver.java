@@ -0,0 +1,17 @@
+package com.kince.listvideo.player.message;
+
+/**
+ * Created by Kince
+ * 播放状态观察者，通过{@link PlayStateDispatcher}按观察者hash接收消息
+ */
+public interface IPlayStateObserver {
+
+    /**
+     * 收到播放状态消息，在主线程回调
+     * 消息对象会被复用，不能在回调之外持有
+     *
+     * @param message
+     */
+    void onPlayStateMessage(Message message);
+
+}
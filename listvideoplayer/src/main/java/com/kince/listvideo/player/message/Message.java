@@ -30,4 +30,12 @@ public class Message {
         return mVideoUrl;
     }
 
+    /**
+     * 由{@link PlayStateDispatcher}复用消息对象时填充
+     */
+    void set(int hash, String videoUrl) {
+        mHash = hash;
+        mVideoUrl = videoUrl;
+    }
+
 }
@@ -0,0 +1,186 @@
+package com.kince.listvideo.player.message;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.SparseArrayCompat;
+
+import java.util.ArrayList;
+import java.util.Observable;
+import java.util.Observer;
+
+/**
+ * Created by Kince
+ *
+ * 播放状态消息分发器
+ *
+ * 观察者按hash注册，消息只投递给hash相同的观察者，不再向所有观察者广播后由观察者自行过滤
+ * 消息对象由分发器复用，非主线程发送的消息通过{@link android.os.Message}（自带对象池）切换到主线程投递
+ *
+ * 通过{@link #addLegacyObserver(Observer)}注册的观察者与旧版本一致，接收所有消息并自行过滤，每次投递新的消息对象
+ *
+ * 注册与注销需在主线程调用
+ */
+public final class PlayStateDispatcher implements Handler.Callback {
+
+    private static final int MSG_UI_STATE = 1;
+    private static final int MSG_DURATION = 2;
+    private static final int MSG_BACK_PRESSED = 3;
+
+    // 观察者，key为观察者hash，列表视图与其小窗口视图共享同一个hash
+    private final SparseArrayCompat<ArrayList<IPlayStateObserver>> mObservers = new SparseArrayCompat<>();
+    // 通过Observer注册的观察者
+    private final LegacyObservable mLegacyObservable = new LegacyObservable();
+    private final Thread mMainThread;
+    private final Handler mMainHandler;
+
+    // 复用的消息对象，只在主线程使用
+    private final UIStateMessage mUIStateMessage = new UIStateMessage(0, null, 0);
+    private final DurationMessage mDurationMessage = new DurationMessage(0, null, 0);
+    private final BackPressedMessage mBackPressedMessage = new BackPressedMessage(0, 0, null);
+
+    public PlayStateDispatcher() {
+        mMainThread = Looper.getMainLooper().getThread();
+        mMainHandler = new Handler(Looper.getMainLooper(), this);
+    }
+
+    /**
+     * 用于测试，消息只能在mainThread中发送
+     *
+     * @param mainThread
+     */
+    PlayStateDispatcher(Thread mainThread) {
+        mMainThread = mainThread;
+        mMainHandler = null;
+    }
+
+    public void addObserver(int hash, IPlayStateObserver observer) {
+        ArrayList<IPlayStateObserver> observers = mObservers.get(hash);
+        if (observers == null) {
+            observers = new ArrayList<>(2);
+            mObservers.put(hash, observers);
+        }
+        if (!observers.contains(observer)) {
+            observers.add(observer);
+        }
+    }
+
+    public void removeObserver(int hash, IPlayStateObserver observer) {
+        ArrayList<IPlayStateObserver> observers = mObservers.get(hash);
+        if (observers == null) {
+            return;
+        }
+        observers.remove(observer);
+        if (observers.isEmpty()) {
+            mObservers.remove(hash);
+        }
+    }
+
+    /**
+     * 注册接收所有消息的观察者
+     *
+     * @param observer update回调的参数为{@link Message}
+     * @deprecated 使用{@link #addObserver(int, IPlayStateObserver)}
+     */
+    @Deprecated
+    public void addLegacyObserver(Observer observer) {
+        mLegacyObservable.addObserver(observer);
+    }
+
+    /**
+     * @param observer
+     * @deprecated 使用{@link #removeObserver(int, IPlayStateObserver)}
+     */
+    @Deprecated
+    public void removeLegacyObserver(Observer observer) {
+        mLegacyObservable.deleteObserver(observer);
+    }
+
+    public void dispatchUIState(int hash, String videoUrl, int state) {
+        dispatch(MSG_UI_STATE, hash, videoUrl, state);
+    }
+
+    public void dispatchDuration(int hash, String videoUrl, int duration) {
+        dispatch(MSG_DURATION, hash, videoUrl, duration);
+    }
+
+    public void dispatchBackPressed(int hash, String videoUrl, int screenState) {
+        dispatch(MSG_BACK_PRESSED, hash, videoUrl, screenState);
+    }
+
+    @Override
+    public boolean handleMessage(android.os.Message msg) {
+        deliver(msg.what, msg.arg1, (String) msg.obj, msg.arg2);
+        return true;
+    }
+
+    private void dispatch(int what, int hash, String videoUrl, int value) {
+        if (Thread.currentThread() == mMainThread) {
+            deliver(what, hash, videoUrl, value);
+        } else {
+            mMainHandler.obtainMessage(what, hash, value, videoUrl).sendToTarget();
+        }
+    }
+
+    private void deliver(int what, int hash, String videoUrl, int value) {
+        if (mLegacyObservable.countObservers() > 0) {
+            mLegacyObservable.send(create(what, hash, videoUrl, value));
+        }
+        ArrayList<IPlayStateObserver> observers = mObservers.get(hash);
+        if (observers == null) {
+            return;
+        }
+        //观察者可能在回调中注销自身，倒序遍历并检查下标
+        for (int i = observers.size() - 1; i >= 0; i--) {
+            if (i >= observers.size()) {
+                continue;
+            }
+            //回调中可能发送新的消息而改写复用的消息对象，每次投递前重新填充
+            observers.get(i).onPlayStateMessage(obtain(what, hash, videoUrl, value));
+        }
+    }
+
+    private Message obtain(int what, int hash, String videoUrl, int value) {
+        switch (what) {
+            case MSG_UI_STATE:
+                mUIStateMessage.set(hash, videoUrl);
+                mUIStateMessage.setState(value);
+                return mUIStateMessage;
+            case MSG_DURATION:
+                mDurationMessage.set(hash, videoUrl);
+                mDurationMessage.setDuration(value);
+                return mDurationMessage;
+            case MSG_BACK_PRESSED:
+                mBackPressedMessage.set(hash, videoUrl);
+                mBackPressedMessage.setScreenState(value);
+                return mBackPressedMessage;
+            default:
+                throw new IllegalArgumentException("Unknown message: " + what);
+        }
+    }
+
+    /**
+     * 创建新的消息对象，供可能持有消息的{@link Observer}使用
+     */
+    private static Message create(int what, int hash, String videoUrl, int value) {
+        switch (what) {
+            case MSG_UI_STATE:
+                return new UIStateMessage(hash, videoUrl, value);
+            case MSG_DURATION:
+                return new DurationMessage(hash, videoUrl, value);
+            case MSG_BACK_PRESSED:
+                return new BackPressedMessage(value, hash, videoUrl);
+            default:
+                throw new IllegalArgumentException("Unknown message: " + what);
+        }
+    }
+
+    private static final class LegacyObservable extends Observable {
+
+        void send(Message message) {
+            setChanged();
+            notifyObservers(message);
+        }
+
+    }
+
+}
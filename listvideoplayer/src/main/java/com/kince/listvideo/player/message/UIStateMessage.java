@@ -20,4 +20,8 @@ public class UIStateMessage extends Message {
         return mState;
     }
 
+    void setState(int state) {
+        mState = state;
+    }
+
 }
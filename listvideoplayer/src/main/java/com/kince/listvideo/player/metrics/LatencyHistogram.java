@@ -0,0 +1,98 @@
+package com.kince.listvideo.player.metrics;
+
+/**
+ * Created by Kince
+ *
+ * 耗时分布直方图，单位毫秒，用于统计p50/p95等分位值
+ *
+ * 0～63ms每1ms一个桶，之后每翻一倍分为32个桶，相对误差约3%，占用固定内存，记录时不产生对象分配
+ */
+public final class LatencyHistogram {
+
+    // 线性区间的桶数
+    private static final int LINEAR_BUCKETS = 64;
+    // 每个指数区间的桶数
+    private static final int SUB_BUCKETS = 32;
+    private static final int SUB_BUCKET_BITS = 5;
+    // 最大指数，超出的值记录在最后一个桶中（约35分钟）
+    private static final int MAX_EXPONENT = 16;
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + MAX_EXPONENT * SUB_BUCKETS;
+
+    private final long[] mCounts = new long[BUCKET_COUNT];
+    private long mTotalCount;
+    private long mMax;
+
+    /**
+     * 记录一次耗时
+     *
+     * @param millis 单位毫秒，小于0时忽略
+     */
+    public synchronized void record(long millis) {
+        if (millis < 0) {
+            return;
+        }
+        mCounts[bucketIndex(millis)]++;
+        mTotalCount++;
+        mMax = Math.max(mMax, millis);
+    }
+
+    public synchronized long getCount() {
+        return mTotalCount;
+    }
+
+    public synchronized long getMax() {
+        return mMax;
+    }
+
+    /**
+     * 获取分位值
+     *
+     * @param percentile 0～100
+     * @return 单位毫秒，没有记录时返回0
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (mTotalCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(mTotalCount * percentile / 100));
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += mCounts[i];
+            if (count >= target) {
+                return Math.min(bucketUpperBound(i), mMax);
+            }
+        }
+        return mMax;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts[i] = 0;
+        }
+        mTotalCount = 0;
+        mMax = 0;
+    }
+
+    private static int bucketIndex(long millis) {
+        if (millis < LINEAR_BUCKETS) {
+            return (int) millis;
+        }
+        //millis >= 64，最高位至少为第6位
+        int exponent = 63 - Long.numberOfLeadingZeros(millis) - SUB_BUCKET_BITS;
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (millis >> exponent) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (exponent - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((long) (subBucket + 1) << exponent) - 1;
+    }
+
+}
@@ -0,0 +1,182 @@
+package com.kince.listvideo.player.metrics;
+
+import android.os.SystemClock;
+
+/**
+ * Created by Kince
+ *
+ * 起播耗时统计
+ *
+ * 每次发起播放开始一个{@link PlaybackSession}，记录各阶段到达的时间，渲染出第一帧时结束，
+ * 并将各阶段耗时记录到对应的{@link LatencyHistogram}中，可在线上通过{@link #dump()}输出p50/p95
+ *
+ * 各方法可在任意线程调用
+ */
+public final class PlaybackMetrics {
+
+    /**
+     * 获取播放地址的耗时
+     */
+    public static final int METRIC_URL_RESOLUTION = 0;
+
+    /**
+     * 从发起播放到Surface可用的耗时
+     */
+    public static final int METRIC_SURFACE = 1;
+
+    /**
+     * prepare的耗时
+     */
+    public static final int METRIC_PREPARE = 2;
+
+    /**
+     * 从发起播放到渲染出第一帧的耗时
+     */
+    public static final int METRIC_FIRST_FRAME = 3;
+
+    private static final int METRIC_COUNT = 4;
+    private static final String[] METRIC_NAMES = {"urlResolution", "surface", "prepare", "firstFrame"};
+
+    /**
+     * 起播完成回调
+     */
+    public interface OnSessionCompleteListener {
+
+        void onSessionComplete(PlaybackSession session);
+
+    }
+
+    private final LatencyHistogram[] mHistograms = new LatencyHistogram[METRIC_COUNT];
+    private PlaybackSession mCurrentSession;
+    private PlaybackSession mLastSession;
+    // 未渲染出第一帧就被放弃的起播次数
+    private long mAbandonedCount;
+    private OnSessionCompleteListener mListener;
+
+    public PlaybackMetrics() {
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            mHistograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * 开始一次起播统计，未完成的上一次起播记为放弃
+     *
+     * @param videoUrl 视频地址
+     */
+    public synchronized void beginSession(String videoUrl) {
+        if (mCurrentSession != null) {
+            mAbandonedCount++;
+        }
+        mCurrentSession = new PlaybackSession(videoUrl, SystemClock.elapsedRealtimeNanos());
+    }
+
+    /**
+     * 没有进行中的起播或进行中的起播不是该视频时开始一次起播统计
+     *
+     * @param videoUrl 视频地址
+     */
+    public synchronized void beginSessionIfAbsent(String videoUrl) {
+        if (mCurrentSession == null || !mCurrentSession.getVideoUrl().equals(videoUrl)) {
+            beginSession(videoUrl);
+        }
+    }
+
+    /**
+     * 记录当前起播到达的阶段，没有进行中的起播时忽略
+     *
+     * @param stage {@link PlaybackSession}中定义的阶段
+     */
+    public void mark(int stage) {
+        long now = SystemClock.elapsedRealtimeNanos();
+        PlaybackSession completed = null;
+        OnSessionCompleteListener listener;
+        synchronized (this) {
+            PlaybackSession session = mCurrentSession;
+            if (session == null || !session.mark(stage, now)) {
+                return;
+            }
+            if (stage == PlaybackSession.STAGE_FIRST_FRAME) {
+                record(session);
+                mLastSession = session;
+                mCurrentSession = null;
+                completed = session;
+            }
+            listener = mListener;
+        }
+        if (completed != null && listener != null) {
+            listener.onSessionComplete(completed);
+        }
+    }
+
+    /**
+     * 结束当前起播统计，如停止播放时，未渲染出第一帧时记为放弃
+     */
+    public synchronized void cancelSession() {
+        if (mCurrentSession != null) {
+            mAbandonedCount++;
+            mCurrentSession = null;
+        }
+    }
+
+    public synchronized void setOnSessionCompleteListener(OnSessionCompleteListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * @return 最近一次完成的起播，没有时返回null
+     */
+    public synchronized PlaybackSession getLastSession() {
+        return mLastSession;
+    }
+
+    public synchronized long getAbandonedCount() {
+        return mAbandonedCount;
+    }
+
+    /**
+     * @param metric {@link #METRIC_URL_RESOLUTION}等
+     * @return
+     */
+    public LatencyHistogram getHistogram(int metric) {
+        return mHistograms[metric];
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : mHistograms) {
+            histogram.reset();
+        }
+        synchronized (this) {
+            mAbandonedCount = 0;
+            mLastSession = null;
+        }
+    }
+
+    /**
+     * 输出各阶段耗时的统计信息
+     *
+     * @return
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder("PlaybackMetrics{");
+        for (int i = 0; i < METRIC_COUNT; i++) {
+            LatencyHistogram histogram = mHistograms[i];
+            builder.append(METRIC_NAMES[i])
+                    .append("[count=").append(histogram.getCount())
+                    .append(", p50=").append(histogram.getPercentile(50))
+                    .append("ms, p95=").append(histogram.getPercentile(95))
+                    .append("ms, max=").append(histogram.getMax())
+                    .append("ms], ");
+        }
+        builder.append("abandoned=").append(getAbandonedCount()).append('}');
+        return builder.toString();
+    }
+
+    private void record(PlaybackSession session) {
+        mHistograms[METRIC_URL_RESOLUTION].record(session.getUrlResolutionMillis());
+        mHistograms[METRIC_SURFACE].record(session.getSurfaceMillis());
+        mHistograms[METRIC_PREPARE].record(session.getPrepareMillis());
+        mHistograms[METRIC_FIRST_FRAME].record(session.getFirstFrameMillis());
+    }
+
+}
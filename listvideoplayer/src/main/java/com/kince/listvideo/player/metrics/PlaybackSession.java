@@ -0,0 +1,132 @@
+package com.kince.listvideo.player.metrics;
+
+/**
+ * Created by Kince
+ *
+ * 一次起播过程中各阶段的时间点，时间基于SystemClock.elapsedRealtimeNanos()
+ */
+public final class PlaybackSession {
+
+    /**
+     * 视图发起播放
+     */
+    public static final int STAGE_START = 0;
+
+    /**
+     * 开始获取播放地址（开启代理缓存时为代理地址）
+     */
+    public static final int STAGE_URL_RESOLVE_START = 1;
+
+    /**
+     * 获取到播放地址
+     */
+    public static final int STAGE_URL_RESOLVED = 2;
+
+    /**
+     * 渲染Surface可用
+     */
+    public static final int STAGE_SURFACE_AVAILABLE = 3;
+
+    /**
+     * 播放器开始prepare
+     */
+    public static final int STAGE_PREPARE_START = 4;
+
+    /**
+     * 播放器prepare完成
+     */
+    public static final int STAGE_PREPARED = 5;
+
+    /**
+     * 渲染出第一帧
+     */
+    public static final int STAGE_FIRST_FRAME = 6;
+
+    static final int STAGE_COUNT = 7;
+
+    /**
+     * 阶段未到达或耗时无法计算
+     */
+    public static final long TIME_UNSET = -1;
+
+    private final String mVideoUrl;
+    private final long[] mStageTimes = new long[STAGE_COUNT];
+
+    PlaybackSession(String videoUrl, long startTimeNanos) {
+        mVideoUrl = videoUrl;
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            mStageTimes[i] = TIME_UNSET;
+        }
+        mStageTimes[STAGE_START] = startTimeNanos;
+    }
+
+    /**
+     * 记录阶段到达的时间，同一阶段只记录第一次
+     *
+     * @return 是否记录成功
+     */
+    boolean mark(int stage, long timeNanos) {
+        if (mStageTimes[stage] != TIME_UNSET) {
+            return false;
+        }
+        mStageTimes[stage] = timeNanos;
+        return true;
+    }
+
+    public String getVideoUrl() {
+        return mVideoUrl;
+    }
+
+    /**
+     * @param stage 阶段
+     * @return 阶段到达的时间，未到达时返回{@link #TIME_UNSET}
+     */
+    public long getStageTimeNanos(int stage) {
+        return mStageTimes[stage];
+    }
+
+    /**
+     * @return 获取播放地址的耗时，单位毫秒
+     */
+    public long getUrlResolutionMillis() {
+        return between(STAGE_URL_RESOLVE_START, STAGE_URL_RESOLVED);
+    }
+
+    /**
+     * @return 从发起播放到Surface可用的耗时，单位毫秒
+     */
+    public long getSurfaceMillis() {
+        return between(STAGE_START, STAGE_SURFACE_AVAILABLE);
+    }
+
+    /**
+     * @return prepare的耗时，单位毫秒，使用预加载的播放器时为{@link #TIME_UNSET}
+     */
+    public long getPrepareMillis() {
+        return between(STAGE_PREPARE_START, STAGE_PREPARED);
+    }
+
+    /**
+     * @return 从发起播放到渲染出第一帧的耗时，单位毫秒
+     */
+    public long getFirstFrameMillis() {
+        return between(STAGE_START, STAGE_FIRST_FRAME);
+    }
+
+    private long between(int from, int to) {
+        if (mStageTimes[from] == TIME_UNSET || mStageTimes[to] == TIME_UNSET) {
+            return TIME_UNSET;
+        }
+        return (mStageTimes[to] - mStageTimes[from]) / 1000000L;
+    }
+
+    @Override
+    public String toString() {
+        return "PlaybackSession{url=" + mVideoUrl
+                + ", urlResolution=" + getUrlResolutionMillis()
+                + "ms, surface=" + getSurfaceMillis()
+                + "ms, prepare=" + getPrepareMillis()
+                + "ms, firstFrame=" + getFirstFrameMillis() + "ms}";
+    }
+
+}
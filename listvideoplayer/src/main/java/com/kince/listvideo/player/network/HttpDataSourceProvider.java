@@ -0,0 +1,27 @@
+package com.kince.listvideo.player.network;
+
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
+
+/**
+ * Created by Kince
+ *
+ * 创建ExoPlayer请求视频所用的HttpDataSource，可替换为基于OkHttp等网络库的实现
+ *
+ * 替换后连接复用由对应的网络库负责，{@link VideoHttpClient#preconnect(String)}只对默认实现生效
+ */
+public interface HttpDataSourceProvider {
+
+    /**
+     * @param userAgent        请求使用的User-Agent
+     * @param listener         传输监听，用于带宽估计，可能为null
+     * @param connectTimeoutMs 连接超时时间，单位：ms
+     * @param readTimeoutMs    读取超时时间，单位：ms
+     * @return
+     */
+    HttpDataSource.Factory createHttpDataSourceFactory(String userAgent,
+                                                       TransferListener<? super DataSource> listener,
+                                                       int connectTimeoutMs, int readTimeoutMs);
+
+}
@@ -0,0 +1,186 @@
+package com.kince.listvideo.player.network;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.kince.listvideo.player.utils.Utils;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Created by Kince
+ *
+ * 可持久化的带宽估计，进程内所有播放器共享
+ *
+ * 实际测量由{@link DefaultBandwidthMeter}完成，每次得到新的估计值后按网络类型（WiFi、移动网络等）保存到SharedPreferences；
+ * 本次进程还没有测量结果时返回上次保存的估计值，新的列表视频不再从无估计值（即最低码率）开始自适应
+ *
+ * 网络类型变化时重新创建DefaultBandwidthMeter，避免上一个网络的估计值被保存到新的网络类型下；
+ * 变化前开始的传输仍由原来的DefaultBandwidthMeter统计，其结果不再保存
+ */
+public final class PersistentBandwidthMeter implements BandwidthMeter, TransferListener<Object> {
+
+    private static final String PREFS_NAME = "vp_bandwidth";
+    private static final String KEY_ESTIMATE_PREFIX = "estimate_";
+    private static final String KEY_TIME_PREFIX = "time_";
+
+    // 保存的估计值超过该时长后不再使用
+    private static final long ESTIMATE_EXPIRE_MS = 24 * 60 * 60 * 1000L;
+    // 估计值变化超过该比例时才写入
+    private static final float PERSIST_CHANGE_FRACTION = 0.1f;
+    // 两次写入的最小间隔
+    private static final long PERSIST_INTERVAL_MS = 10 * 1000;
+
+    private static volatile PersistentBandwidthMeter sInstance;
+
+    private final Context mContext;
+    private final SharedPreferences mPreferences;
+    private final Handler mMainHandler;
+    // 当前网络类型的测量
+    private volatile NetworkMeter mMeter;
+    // 进行中的传输所使用的测量，需持有this
+    private final Map<Object, NetworkMeter> mTransfers = new IdentityHashMap<>();
+
+    // 当前网络类型，每次开始传输时更新
+    private volatile int mNetworkType;
+    // 当前网络类型下保存的估计值
+    private volatile long mStoredEstimate = NO_ESTIMATE;
+    // 上次写入的估计值与时间，主线程与加载线程都会访问，需持有this
+    private long mLastPersistedEstimate = NO_ESTIMATE;
+    private long mLastPersistTimeMs;
+
+    public static PersistentBandwidthMeter getInstance(Context context) {
+        if (sInstance == null) {
+            synchronized (PersistentBandwidthMeter.class) {
+                if (sInstance == null) {
+                    sInstance = new PersistentBandwidthMeter(context.getApplicationContext());
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private PersistentBandwidthMeter(Context context) {
+        mContext = context;
+        mPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mMainHandler = new Handler(Looper.getMainLooper());
+        updateNetworkType();
+    }
+
+    @Override
+    public long getBitrateEstimate() {
+        long estimate = mMeter.mDelegate.getBitrateEstimate();
+        return estimate != NO_ESTIMATE ? estimate : mStoredEstimate;
+    }
+
+    @Override
+    public void onTransferStart(Object source, DataSpec dataSpec) {
+        NetworkMeter meter;
+        synchronized (this) {
+            updateNetworkType();
+            meter = mMeter;
+            mTransfers.put(source, meter);
+        }
+        meter.mDelegate.onTransferStart(source, dataSpec);
+    }
+
+    @Override
+    public void onBytesTransferred(Object source, int bytesTransferred) {
+        NetworkMeter meter;
+        synchronized (this) {
+            meter = mTransfers.get(source);
+        }
+        if (meter != null) {
+            meter.mDelegate.onBytesTransferred(source, bytesTransferred);
+        }
+    }
+
+    @Override
+    public void onTransferEnd(Object source) {
+        NetworkMeter meter;
+        synchronized (this) {
+            meter = mTransfers.remove(source);
+        }
+        if (meter != null) {
+            meter.mDelegate.onTransferEnd(source);
+        }
+    }
+
+    /**
+     * 主线程回调
+     *
+     * @param meter 产生估计值的测量
+     */
+    private void onBandwidthSample(NetworkMeter meter) {
+        long estimate = meter.mDelegate.getBitrateEstimate();
+        if (estimate == NO_ESTIMATE) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        int networkType;
+        synchronized (this) {
+            if (meter != mMeter) {
+                //网络类型已变化
+                return;
+            }
+            mStoredEstimate = estimate;
+            if (mLastPersistedEstimate != NO_ESTIMATE
+                    && Math.abs(estimate - mLastPersistedEstimate) < mLastPersistedEstimate * PERSIST_CHANGE_FRACTION
+                    && now - mLastPersistTimeMs < PERSIST_INTERVAL_MS) {
+                return;
+            }
+            mLastPersistedEstimate = estimate;
+            mLastPersistTimeMs = now;
+            networkType = meter.mNetworkType;
+        }
+        mPreferences.edit()
+                .putLong(KEY_ESTIMATE_PREFIX + networkType, estimate)
+                .putLong(KEY_TIME_PREFIX + networkType, System.currentTimeMillis())
+                .apply();
+    }
+
+    /**
+     * 网络类型变化时重新开始测量，并加载该网络类型下保存的估计值，在加载线程调用
+     */
+    private synchronized void updateNetworkType() {
+        int networkType = Utils.getNetworkType(mContext);
+        if (mMeter != null && networkType == mNetworkType) {
+            return;
+        }
+        mNetworkType = networkType;
+        mMeter = new NetworkMeter(networkType);
+        long time = mPreferences.getLong(KEY_TIME_PREFIX + networkType, 0);
+        mStoredEstimate = System.currentTimeMillis() - time > ESTIMATE_EXPIRE_MS ? NO_ESTIMATE
+                : mPreferences.getLong(KEY_ESTIMATE_PREFIX + networkType, NO_ESTIMATE);
+        mLastPersistedEstimate = NO_ESTIMATE;
+    }
+
+    /**
+     * 一种网络类型下的测量
+     */
+    private final class NetworkMeter implements BandwidthMeter.EventListener {
+
+        final int mNetworkType;
+        final DefaultBandwidthMeter mDelegate;
+
+        NetworkMeter(int networkType) {
+            mNetworkType = networkType;
+            mDelegate = new DefaultBandwidthMeter(mMainHandler, this);
+        }
+
+        @Override
+        public void onBandwidthSample(int elapsedMs, long bytes, long bitrate) {
+            PersistentBandwidthMeter.this.onBandwidthSample(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,224 @@
+package com.kince.listvideo.player.network;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
+import com.google.android.exoplayer2.upstream.DefaultHttpDataSourceFactory;
+import com.google.android.exoplayer2.upstream.HttpDataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.kince.listvideo.player.utils.VideoPlayerLog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Kince
+ *
+ * 进程内共享的视频网络请求配置
+ *
+ * 1.HttpURLConnection在进程内共用一个连接池，开启{@link com.kince.listvideo.player.config.VideoPlayerConfig.Builder#enableConnectionPoolTuning(boolean)}
+ *   后调大空闲连接数和保活时长，列表中的视频大多来自同一个CDN域名，后续请求可以直接复用已建立的连接，不再重复TCP、TLS握手
+ * 2.连接、读取超时时间可在播放过程中修改，对之后新建的请求生效
+ * 3.可通过{@link HttpDataSourceProvider}替换ExoPlayer使用的HttpDataSource实现
+ *
+ * 连接池参数在首次发起网络请求时读取，需在此之前创建{@link com.kince.listvideo.player.player.VideoPlayerManager}
+ */
+public final class VideoHttpClient {
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = DefaultHttpDataSource.DEFAULT_CONNECT_TIMEOUT_MILLIS;
+    public static final int DEFAULT_READ_TIMEOUT_MS = DefaultHttpDataSource.DEFAULT_READ_TIMEOUT_MILLIS;
+
+    // 连接池中保留的空闲连接数
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    // 空闲连接的保活时长
+    private static final long KEEP_ALIVE_DURATION_MS = 5 * 60 * 1000;
+    // 同一个域名两次预连接的最小间隔，小于保活时长即可保证连接池中有可用连接
+    private static final long PRECONNECT_INTERVAL_MS = 60 * 1000;
+    // 预连接线程空闲多久后退出
+    private static final long PRECONNECT_THREAD_KEEP_ALIVE_MS = 30 * 1000;
+
+    /**
+     * 默认实现，基于HttpURLConnection，使用进程内共享的连接池
+     */
+    public static final HttpDataSourceProvider DEFAULT_PROVIDER = new HttpDataSourceProvider() {
+        @Override
+        public HttpDataSource.Factory createHttpDataSourceFactory(String userAgent,
+                                                                  TransferListener<? super DataSource> listener,
+                                                                  int connectTimeoutMs, int readTimeoutMs) {
+            return new DefaultHttpDataSourceFactory(userAgent, listener, connectTimeoutMs, readTimeoutMs, false);
+        }
+    };
+
+    private static volatile VideoHttpClient sInstance;
+
+    private volatile HttpDataSourceProvider mProvider = DEFAULT_PROVIDER;
+    private volatile int mConnectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MS;
+    private volatile int mReadTimeoutMs = DEFAULT_READ_TIMEOUT_MS;
+
+    // 各域名最近一次预连接的时间
+    private final Map<String, Long> mPreconnectTimes = new HashMap<>();
+    // 预连接线程，空闲时自动退出，无需关闭
+    private final ThreadPoolExecutor mPreconnectExecutor;
+
+    public static VideoHttpClient getInstance() {
+        if (sInstance == null) {
+            synchronized (VideoHttpClient.class) {
+                if (sInstance == null) {
+                    sInstance = new VideoHttpClient();
+                }
+            }
+        }
+        return sInstance;
+    }
+
+    private VideoHttpClient() {
+        mPreconnectExecutor = new ThreadPoolExecutor(1, 1, PRECONNECT_THREAD_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        mPreconnectExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 通过系统属性调整HttpURLConnection连接池参数，对整个进程生效，应用已自行设置时不覆盖
+     * 需在首次发起网络请求前调用
+     */
+    public void configureConnectionPool() {
+        setPropertyIfAbsent("http.keepAlive", "true");
+        setPropertyIfAbsent("http.maxConnections", String.valueOf(MAX_IDLE_CONNECTIONS));
+        setPropertyIfAbsent("http.keepAliveDuration", String.valueOf(KEEP_ALIVE_DURATION_MS));
+    }
+
+    private static void setPropertyIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    /**
+     * 替换HttpDataSource实现
+     *
+     * @param provider 为null时使用{@link #DEFAULT_PROVIDER}
+     */
+    public void setProvider(HttpDataSourceProvider provider) {
+        mProvider = provider == null ? DEFAULT_PROVIDER : provider;
+    }
+
+    /**
+     * 设置超时时间，对之后新建的请求生效
+     *
+     * @param connectTimeoutMs 连接超时时间，单位：ms
+     * @param readTimeoutMs    读取超时时间，单位：ms
+     */
+    public void setTimeouts(int connectTimeoutMs, int readTimeoutMs) {
+        if (connectTimeoutMs <= 0 || readTimeoutMs <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        mConnectTimeoutMs = connectTimeoutMs;
+        mReadTimeoutMs = readTimeoutMs;
+    }
+
+    public int getConnectTimeoutMs() {
+        return mConnectTimeoutMs;
+    }
+
+    public int getReadTimeoutMs() {
+        return mReadTimeoutMs;
+    }
+
+    /**
+     * 创建ExoPlayer使用的DataSource.Factory，每个DataSource创建时读取当前的实现和超时时间
+     *
+     * @param userAgent
+     * @param listener  传输监听，可以为null
+     * @return
+     */
+    public DataSource.Factory newDataSourceFactory(final String userAgent,
+                                                   final TransferListener<? super DataSource> listener) {
+        return new DataSource.Factory() {
+            @Override
+            public DataSource createDataSource() {
+                return mProvider.createHttpDataSourceFactory(userAgent, listener,
+                        mConnectTimeoutMs, mReadTimeoutMs).createDataSource();
+            }
+        };
+    }
+
+    /**
+     * 打开HttpURLConnection并设置超时时间
+     * 读取完响应后需关闭输入流，连接才会放回连接池
+     *
+     * @param url
+     * @return
+     * @throws IOException
+     */
+    public HttpURLConnection openConnection(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(mConnectTimeoutMs);
+        connection.setReadTimeout(mReadTimeoutMs);
+        return connection;
+    }
+
+    /**
+     * 提前与视频所在的域名建立连接并放入连接池，之后的视频请求不再等待握手
+     * HttpURLConnection不支持请求流水线，以预连接代替；替换了{@link HttpDataSourceProvider}时不生效
+     *
+     * @param url 视频地址，非http(s)地址直接忽略
+     */
+    public void preconnect(final String url) {
+        if (mProvider != DEFAULT_PROVIDER || TextUtils.isEmpty(url)) {
+            return;
+        }
+        Uri uri = Uri.parse(url);
+        String scheme = uri.getScheme();
+        if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme) || uri.getHost() == null) {
+            return;
+        }
+        String key = scheme.toLowerCase() + "://" + uri.getHost() + ":" + uri.getPort();
+        long now = SystemClock.elapsedRealtime();
+        synchronized (this) {
+            Long lastTime = mPreconnectTimes.get(key);
+            if (lastTime != null && now - lastTime < PRECONNECT_INTERVAL_MS) {
+                return;
+            }
+            mPreconnectTimes.put(key, now);
+        }
+        mPreconnectExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                connect(url);
+            }
+        });
+    }
+
+    private void connect(String url) {
+        HttpURLConnection connection = null;
+        try {
+            connection = openConnection(url);
+            connection.setRequestMethod("HEAD");
+            int responseCode = connection.getResponseCode();
+            InputStream inputStream = responseCode < HttpURLConnection.HTTP_BAD_REQUEST
+                    ? connection.getInputStream() : connection.getErrorStream();
+            if (inputStream != null) {
+                inputStream.close();
+            }
+            VideoPlayerLog.d(VideoPlayerLog.TAG, "preconnect %s, response=%d", url, responseCode);
+        } catch (Exception e) {
+            VideoPlayerLog.d(VideoPlayerLog.TAG, "preconnect failed, url=%s, error=%s", url, e);
+        } finally {
+            if (connection != null) {
+                //响应已读取完，断开后连接放回连接池
+                connection.disconnect();
+            }
+        }
+    }
+
+}
@@ -1,20 +1,54 @@
 package com.kince.listvideo.player.player;
 
-import android.graphics.SurfaceTexture;
-import android.util.Log;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.view.Surface;
 import android.view.TextureView;
 
+import com.kince.listvideo.player.cache.CacheAdmissionController;
+import com.kince.listvideo.player.cache.IVideoPlayerCache;
+import com.kince.listvideo.player.config.VideoPlayerConfig;
+import com.kince.listvideo.player.metrics.PlaybackSession;
+import com.kince.listvideo.player.state.PlayerStateMachine;
+import com.kince.listvideo.player.state.ScreenViewState;
 import com.kince.listvideo.player.state.VideoPlayerState;
+import com.kince.listvideo.player.utils.VideoPlayerLog;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Created by Kince
  * 基类播放器
+ *
+ * prepare、seek、stop、release等耗时操作可以通过{@link #postCommand(int, int, Object)}交给播放线程按顺序执行，
+ * 子类在{@link #onCommand(int, int, Object)}中处理；尚未执行的命令会被之后的命令合并，
+ * 例如新的prepare会取消尚未执行的prepare和seek，连续seek只执行最后一次
+ *
+ * 要求单线程访问的播放器（如ExoPlayer）需通过{@link #runOnPlaybackThread(Runnable)}在播放线程中创建，
+ * 之后的所有调用都通过命令或{@link #runOnPlaybackThread(Runnable)}在播放线程执行，主线程只读取缓存的状态
  */
 public abstract class AbsBaseVideoPlayer implements
-        IVideoPlayer, TextureView.SurfaceTextureListener {
+        IVideoPlayer, VideoSurfaceHolder.Callback {
+
+    private static final String TAG = "ListVideoPlayer";
+
+    /**
+     * 在播放线程执行的命令
+     */
+    protected static final int CMD_PREPARE = 1;
+    protected static final int CMD_SEEK = 2;
+    protected static final int CMD_STOP = 3;
+    protected static final int CMD_RELEASE = 4;
 
     // 播放器状态
-    protected int mState = VideoPlayerState.STATE_NORMAL;
+    protected final PlayerStateMachine mStateMachine = new PlayerStateMachine();
+
+    // 当前视频是否已经发起过prepare，避免重复prepare
+    private final AtomicBoolean mPrepareRequested = new AtomicBoolean();
 
     // 播放地址
     protected String mUrl;
@@ -26,47 +60,409 @@ public abstract class AbsBaseVideoPlayer implements
      * 配合播放器使用
      */
     protected TextureView mTextureView;
-    protected SurfaceTexture mSurfaceTexture;
+
+    // 渲染Surface，TextureView更换时保持不变
+    protected final VideoSurfaceHolder mSurfaceHolder = new VideoSurfaceHolder(this);
 
     // 是否开启日志
     protected boolean mEnableLog;
 
+    // 当前视频渲染首帧的次数，无缝切换显示位置时不应增加
+    private volatile int mFirstFrameCount;
+    // 当前视频在TextureView上更新的帧数
+    private volatile int mRenderedFrameCount;
+
+    // 已预加载的播放地址，为null时表示未预加载
+    protected String mPreloadUrl;
+
+    // 播放器直接读写的缓存，为null时不缓存或通过缓存代理地址缓存
+    protected IVideoPlayerCache mCache;
+    protected CacheAdmissionController mCacheAdmissionController;
+
+    // 播放器配置，由{@link PlayerPool}在创建播放器后设置
+    protected VideoPlayerConfig mConfig;
+
+    // 当前屏幕状态
+    protected int mScreenState = ScreenViewState.SCREEN_STATE_NORMAL;
+
+    // 显示视频的区域大小，未知时为0
+    protected int mViewportWidth;
+    protected int mViewportHeight;
+
+    // 播放线程，第一次发送命令时创建，release后退出
+    private HandlerThread mPlaybackThread;
+    private PlaybackHandler mPlaybackHandler;
+    private boolean mCommandQueueReleased;
+    // 被合并而未执行的命令数
+    private volatile int mCoalescedCommandCount;
+
     /**
      * 准备播放
      */
     protected abstract void prepare();
 
+    /**
+     * 在没有渲染Surface的情况下提前prepare指定视频，预加载完成后不会自动播放，
+     * 也不会回调{@link PlayCallback}，默认不支持预加载
+     *
+     * @param url 播放地址
+     * @return 是否支持并开始了预加载
+     */
+    public boolean preload(String url) {
+        return false;
+    }
+
+    /**
+     * 是否已预加载指定视频
+     *
+     * @param url 播放地址
+     * @return
+     */
+    public boolean isPreloaded(String url) {
+        return url != null && url.equals(mPreloadUrl);
+    }
+
+    /**
+     * 是否支持直接读写{@link IVideoPlayerCache}，不支持时只能通过缓存代理地址缓存
+     *
+     * @return
+     */
+    public boolean isCacheDataSourceSupported() {
+        return false;
+    }
+
+    /**
+     * 设置播放器直接读写的缓存，在{@link #start(String)}或{@link #preload(String)}之前调用
+     *
+     * @param cache 为null时不使用缓存
+     */
+    public void setCache(IVideoPlayerCache cache) {
+        setCache(cache, null);
+    }
+
+    /**
+     * 设置播放器直接读写的缓存，在{@link #start(String)}或{@link #preload(String)}之前调用
+     *
+     * @param cache               为null时不使用缓存
+     * @param admissionController 写入缓存前检查视频是否允许缓存，为null时不限制
+     */
+    public void setCache(IVideoPlayerCache cache, CacheAdmissionController admissionController) {
+        mCache = cache;
+        mCacheAdmissionController = admissionController;
+    }
+
+    /**
+     * 设置播放器配置
+     *
+     * @param config
+     */
+    public void setConfig(VideoPlayerConfig config) {
+        mConfig = config;
+    }
+
+    /**
+     * 屏幕状态发生改变，子类可以据此调整清晰度、缓冲等策略
+     *
+     * @param screenState {@link ScreenViewState}
+     */
+    public void setScreenState(int screenState) {
+        mScreenState = screenState;
+    }
+
     @Override
-    public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
+    public void onSurfaceCreated(Surface surface) {
         if (mEnableLog) {
-            Log.i("ListVideoPlayer", "AbsBaseVideoPlayer onSurfaceTextureAvailable");
+            VideoPlayerLog.i(TAG, "AbsBaseVideoPlayer onSurfaceCreated");
         }
-        if (mSurfaceTexture == null && (getPlayerState() == VideoPlayerState.STATE_NORMAL || getPlayerState() == VideoPlayerState.STATE_LOADING)) {
-            prepare();
-        }
-        mSurfaceTexture = surface;
+        markStage(PlaybackSession.STAGE_SURFACE_AVAILABLE);
+        prepareIfNeeded();
     }
 
     @Override
-    public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
+    public void onSurfaceMoved(TextureView textureView) {
         if (mEnableLog) {
-            Log.i("ListVideoPlayer", "AbsBaseVideoPlayer onSurfaceTextureSizeChanged");
+            VideoPlayerLog.i(TAG, "AbsBaseVideoPlayer onSurfaceMoved");
         }
+        prepareIfNeeded();
     }
 
     @Override
-    public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
+    public void onSurfaceReleasing(Surface surface) {
         if (mEnableLog) {
-            Log.i("ListVideoPlayer", "AbsBaseVideoPlayer onSurfaceTextureDestroyed");
+            VideoPlayerLog.i(TAG, "AbsBaseVideoPlayer onSurfaceReleasing");
         }
-        return false;
     }
 
     @Override
-    public void onSurfaceTextureUpdated(SurfaceTexture surface) {
-        if (mEnableLog) {
-            Log.i("ListVideoPlayer", "AbsBaseVideoPlayer onSurfaceTextureUpdated");
+    public void onSurfaceSizeChanged(int width, int height) {
+        if (width == mViewportWidth && height == mViewportHeight) {
+            return;
+        }
+        mViewportWidth = width;
+        mViewportHeight = height;
+        onViewportSizeChanged(width, height);
+    }
+
+    /**
+     * 显示视频的区域大小发生改变，如切换列表、小窗口、全屏播放，子类可以据此限制清晰度
+     *
+     * @param width
+     * @param height
+     */
+    protected void onViewportSizeChanged(int width, int height) {
+
+    }
+
+    @Override
+    public void onSurfaceUpdated() {
+        //逐帧回调，只在打开FRAME_LOG时按间隔采样输出，关闭时整段代码在编译期被移除
+        mRenderedFrameCount++;
+        if (VideoPlayerLog.FRAME_LOG && mEnableLog
+                && mRenderedFrameCount % VideoPlayerLog.FRAME_LOG_SAMPLE_INTERVAL == 0) {
+            VideoPlayerLog.d(TAG, "AbsBaseVideoPlayer onSurfaceUpdated, frames=%d", mRenderedFrameCount);
+        }
+    }
+
+    /**
+     * 发送命令到播放线程执行，尚未执行的同类或被覆盖的命令会被合并：
+     * 1.{@link #CMD_PREPARE} 取消尚未执行的prepare、seek和stop
+     * 2.{@link #CMD_SEEK} 只保留最后一次seek
+     * 3.{@link #CMD_STOP} 取消尚未执行的prepare、seek和stop
+     * 4.{@link #CMD_RELEASE} 取消所有尚未执行的命令，执行后播放线程退出，之后的命令被忽略
+     *
+     * @param command 命令
+     * @param arg     整型参数，如seek的位置
+     * @param obj     其他参数
+     */
+    protected final synchronized void postCommand(int command, int arg, Object obj) {
+        if (mCommandQueueReleased) {
+            return;
+        }
+        ensurePlaybackThread();
+        switch (command) {
+            case CMD_PREPARE:
+            case CMD_STOP:
+                removePendingCommand(CMD_PREPARE);
+                removePendingCommand(CMD_SEEK);
+                removePendingCommand(CMD_STOP);
+                break;
+            case CMD_SEEK:
+                removePendingCommand(CMD_SEEK);
+                break;
+            case CMD_RELEASE:
+                mPlaybackHandler.removeCallbacksAndMessages(null);
+                break;
+        }
+        mPlaybackHandler.obtainMessage(command, arg, 0, obj).sendToTarget();
+        if (command == CMD_RELEASE) {
+            mCommandQueueReleased = true;
+            mPlaybackThread.quitSafely();
+        }
+    }
+
+    /**
+     * 在播放线程按提交顺序执行任务，与命令共用同一队列，不会被合并；
+     * {@link #CMD_RELEASE}会取消尚未执行的任务，之后提交的任务被忽略
+     *
+     * @param runnable
+     */
+    protected final synchronized void runOnPlaybackThread(Runnable runnable) {
+        if (mCommandQueueReleased) {
+            return;
+        }
+        ensurePlaybackThread();
+        mPlaybackHandler.post(runnable);
+    }
+
+    /**
+     * 在播放线程执行任务并等待其完成，只用于必须同步完成的操作，如Surface销毁前解除关联
+     *
+     * @param runnable
+     * @param timeoutMs 最长等待时间
+     * @return 是否在超时前执行完成
+     */
+    protected final boolean runOnPlaybackThreadAndWait(final Runnable runnable, long timeoutMs) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        synchronized (this) {
+            if (mCommandQueueReleased) {
+                return false;
+            }
+            ensurePlaybackThread();
+            if (Looper.myLooper() == mPlaybackThread.getLooper()) {
+                runnable.run();
+                return true;
+            }
+            mPlaybackHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        runnable.run();
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
         }
+        try {
+            return latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void ensurePlaybackThread() {
+        if (mPlaybackHandler == null) {
+            mPlaybackThread = new HandlerThread(TAG);
+            mPlaybackThread.start();
+            mPlaybackHandler = new PlaybackHandler(mPlaybackThread.getLooper());
+        }
+    }
+
+    private void removePendingCommand(int command) {
+        if (mPlaybackHandler.hasMessages(command)) {
+            mPlaybackHandler.removeMessages(command);
+            mCoalescedCommandCount++;
+        }
+    }
+
+    /**
+     * 在播放线程执行命令，子类按需处理
+     *
+     * @param command {@link #CMD_PREPARE}等
+     * @param arg
+     * @param obj
+     */
+    protected void onCommand(int command, int arg, Object obj) {
+
+    }
+
+    /**
+     * 被合并而未执行的命令数
+     *
+     * @return
+     */
+    public int getCoalescedCommandCount() {
+        return mCoalescedCommandCount;
+    }
+
+    private class PlaybackHandler extends Handler {
+
+        PlaybackHandler(Looper looper) {
+            super(looper);
+        }
+
+        @Override
+        public void handleMessage(Message msg) {
+            if (mEnableLog) {
+                VideoPlayerLog.d(TAG, "AbsBaseVideoPlayer onCommand %d", msg.what);
+            }
+            onCommand(msg.what, msg.arg1, msg.obj);
+        }
+    }
+
+    /**
+     * 跳转到指定位置
+     *
+     * @param position
+     * @param exact    为false时允许跳转到附近的关键帧，速度更快，用于拖动中的预览；默认总是精确跳转
+     */
+    public void seekTo(int position, boolean exact) {
+        seekTo(position);
+    }
+
+    /**
+     * 有可用的Surface且当前视频尚未prepare时开始prepare
+     */
+    private void prepareIfNeeded() {
+        int state = getPlayerState();
+        if ((state == VideoPlayerState.STATE_NORMAL || state == VideoPlayerState.STATE_LOADING)
+                && mPrepareRequested.compareAndSet(false, true)) {
+            markStage(PlaybackSession.STAGE_PREPARE_START);
+            prepare();
+        }
+    }
+
+    /**
+     * 释放保留的渲染Surface，在停止播放或开始播放新视频时调用，
+     * 切换全屏、小窗口时不要调用，否则会重建解码器输出
+     */
+    public void releaseSurface() {
+        mSurfaceHolder.release();
+    }
+
+    /**
+     * 子类在解码器输出首帧时调用
+     */
+    protected void onFirstFrameRendered() {
+        mFirstFrameCount++;
+        markStage(PlaybackSession.STAGE_FIRST_FRAME);
+    }
+
+    /**
+     * 当前视频渲染首帧的次数，正常起播为1，
+     * 切换全屏、小窗口后增加说明解码器输出被重建，画面出现了中断
+     *
+     * @return
+     */
+    public int getFirstFrameCount() {
+        return mFirstFrameCount;
+    }
+
+    /**
+     * 当前视频在TextureView上更新的帧数
+     *
+     * @return
+     */
+    public int getRenderedFrameCount() {
+        return mRenderedFrameCount;
+    }
+
+    /**
+     * 当前视频解码后被丢弃的帧数
+     *
+     * @return 播放器不支持统计时返回0
+     */
+    public int getDroppedFrameCount() {
+        return 0;
+    }
+
+    /**
+     * 通知起播到达某一阶段，回调未实现{@link PlaybackStageListener}或预加载中的播放器不会被统计
+     *
+     * @param stage {@link PlaybackSession}中定义的阶段
+     */
+    protected void markStage(int stage) {
+        PlayCallback callback = mPlayCallback;
+        if (callback instanceof PlaybackStageListener) {
+            ((PlaybackStageListener) callback).onPlaybackStage(stage);
+        }
+    }
+
+    @Override
+    public void setPlayerState(int state) {
+        transitionTo(state);
+    }
+
+    /**
+     * 设置播放状态，只允许按{@link PlayerStateMachine}定义的规则迁移
+     *
+     * @param state {@link VideoPlayerState}
+     * @return 状态是否发生了变化
+     */
+    public boolean transitionTo(int state) {
+        if (state == VideoPlayerState.STATE_LOADING || state == VideoPlayerState.STATE_NORMAL) {
+            //开始加载新视频或停止播放，允许再次prepare
+            mPrepareRequested.set(false);
+            mFirstFrameCount = 0;
+            mRenderedFrameCount = 0;
+        }
+        return mStateMachine.transitionTo(state);
+    }
+
+    @Override
+    public int getPlayerState() {
+        return mStateMachine.get();
     }
 
     /**
@@ -76,9 +472,6 @@ public abstract class AbsBaseVideoPlayer implements
      */
     @Override
     public boolean isPlaying() {
-        if (mEnableLog) {
-            Log.i("ListVideoPlayer", "AbsBaseVideoPlayer isPlaying");
-        }
         return (getPlayerState() == VideoPlayerState.STATE_PLAYING ||
                 getPlayerState() == VideoPlayerState.STATE_PLAYING_BUFFERING_START) &&
                 getCurrentPosition() < getDuration();
@@ -92,7 +485,7 @@ public abstract class AbsBaseVideoPlayer implements
     @Override
     public void setPlayCallback(PlayCallback playCallback) {
         if (mEnableLog) {
-            Log.i("ListVideoPlayer", "AbsBaseVideoPlayer setPlayCallback");
+            VideoPlayerLog.i(TAG, "AbsBaseVideoPlayer setPlayCallback");
         }
         mPlayCallback = playCallback;
     }
@@ -111,16 +504,20 @@ public abstract class AbsBaseVideoPlayer implements
     @Override
     public void setTextureView(TextureView textureView) {
         if (mEnableLog) {
-            Log.i("ListVideoPlayer", "AbsBaseVideoPlayer setTextureView");
+            VideoPlayerLog.i(TAG, "AbsBaseVideoPlayer setTextureView");
         }
-        if (mTextureView != null) {
-            mTextureView.setSurfaceTextureListener(null);
-        }
-        mSurfaceTexture = null;
+        //只更换显示视频的TextureView，渲染Surface由mSurfaceHolder保留
         mTextureView = textureView;
-        if (textureView != null) {
-            mTextureView.setSurfaceTextureListener(this);
-        }
+        mSurfaceHolder.setTextureView(textureView);
+    }
+
+    /**
+     * 取出可复用的TextureView，避免每次切换显示位置时都新建TextureView
+     *
+     * @return 不存在时返回null
+     */
+    public TextureView obtainRecycledTextureView() {
+        return mSurfaceHolder.obtainRecycledTextureView();
     }
 
 }
@@ -0,0 +1,157 @@
+package com.kince.listvideo.player.player;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.LoadControl;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+import com.google.android.exoplayer2.util.Util;
+import com.kince.listvideo.player.config.BufferProfile;
+
+/**
+ * Created by Kince
+ *
+ * 可在播放过程中切换{@link BufferProfile}的LoadControl，加载策略与ExoPlayer的DefaultLoadControl一致
+ *
+ * {@link #setProfile(BufferProfile)}在主线程调用，其余方法由ExoPlayer在播放线程调用
+ */
+final class BufferProfileLoadControl implements LoadControl {
+
+    private static final int BELOW_LOW_WATERMARK = 0;
+    private static final int BETWEEN_WATERMARKS = 1;
+    private static final int ABOVE_HIGH_WATERMARK = 2;
+
+    private final DefaultAllocator mAllocator = new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+
+    private volatile BufferProfile mProfile;
+    // 按选中的轨道计算的缓冲内存大小
+    private int mTrackTargetBufferSize;
+    private boolean mIsBuffering;
+    // 当前配置下缓冲占用内存的峰值
+    private volatile long mPeakAllocatedBytes;
+
+    BufferProfileLoadControl(BufferProfile profile) {
+        mProfile = profile;
+    }
+
+    /**
+     * 切换缓冲配置，下一次判断是否继续加载时生效
+     *
+     * @param profile
+     */
+    void setProfile(BufferProfile profile) {
+        if (profile != mProfile) {
+            mProfile = profile;
+            mPeakAllocatedBytes = mAllocator.getTotalBytesAllocated();
+            mAllocator.setTargetBufferSize(getTargetBufferSize(profile));
+        }
+    }
+
+    BufferProfile getProfile() {
+        return mProfile;
+    }
+
+    /**
+     * @return 当前缓冲占用的内存字节数
+     */
+    long getAllocatedBytes() {
+        return mAllocator.getTotalBytesAllocated();
+    }
+
+    /**
+     * @return 切换到当前配置后缓冲占用内存的峰值
+     */
+    long getPeakAllocatedBytes() {
+        return mPeakAllocatedBytes;
+    }
+
+    /**
+     * @return 当前配置下缓冲内存的上限
+     */
+    long getTargetBufferBytes() {
+        return getTargetBufferSize(mProfile);
+    }
+
+    @Override
+    public void onPrepared() {
+        reset(false);
+    }
+
+    @Override
+    public void onTracksSelected(Renderer[] renderers, TrackGroupArray trackGroups,
+                                 TrackSelectionArray trackSelections) {
+        int targetBufferSize = 0;
+        for (int i = 0; i < renderers.length; i++) {
+            if (trackSelections.get(i) != null) {
+                targetBufferSize += Util.getDefaultBufferSize(renderers[i].getTrackType());
+            }
+        }
+        mTrackTargetBufferSize = targetBufferSize;
+        mAllocator.setTargetBufferSize(getTargetBufferSize(mProfile));
+    }
+
+    @Override
+    public void onStopped() {
+        reset(true);
+    }
+
+    @Override
+    public void onReleased() {
+        reset(true);
+    }
+
+    @Override
+    public Allocator getAllocator() {
+        return mAllocator;
+    }
+
+    @Override
+    public boolean shouldStartPlayback(long bufferedDurationUs, boolean rebuffering) {
+        BufferProfile profile = mProfile;
+        long minBufferDurationUs = (rebuffering ? profile.getBufferForPlaybackAfterRebufferMs()
+                : profile.getBufferForPlaybackMs()) * 1000L;
+        return minBufferDurationUs <= 0 || bufferedDurationUs >= minBufferDurationUs;
+    }
+
+    @Override
+    public boolean shouldContinueLoading(long bufferedDurationUs) {
+        BufferProfile profile = mProfile;
+        long allocatedBytes = mAllocator.getTotalBytesAllocated();
+        if (allocatedBytes > mPeakAllocatedBytes) {
+            mPeakAllocatedBytes = allocatedBytes;
+        }
+        int bufferTimeState = bufferedDurationUs > profile.getMaxBufferMs() * 1000L ? ABOVE_HIGH_WATERMARK
+                : bufferedDurationUs < profile.getMinBufferMs() * 1000L ? BELOW_LOW_WATERMARK : BETWEEN_WATERMARKS;
+        boolean targetBufferSizeReached = allocatedBytes >= getTargetBufferSize(profile);
+        long playableBufferUs = Math.max(profile.getBufferForPlaybackMs(),
+                profile.getBufferForPlaybackAfterRebufferMs()) * 1000L;
+        if (profile.getMaxBufferBytes() != BufferProfile.BYTES_UNSET && targetBufferSizeReached
+                && bufferedDurationUs >= playableBufferUs) {
+            //限制了内存时，缓冲足够开始播放后即使低于最小缓冲时长也不再加载
+            mIsBuffering = false;
+            return false;
+        }
+        mIsBuffering = bufferTimeState == BELOW_LOW_WATERMARK
+                || (bufferTimeState == BETWEEN_WATERMARKS && mIsBuffering && !targetBufferSizeReached);
+        return mIsBuffering;
+    }
+
+    private int getTargetBufferSize(BufferProfile profile) {
+        int maxBufferBytes = profile.getMaxBufferBytes();
+        if (maxBufferBytes == BufferProfile.BYTES_UNSET) {
+            return mTrackTargetBufferSize;
+        }
+        return mTrackTargetBufferSize == 0 ? maxBufferBytes : Math.min(maxBufferBytes, mTrackTargetBufferSize);
+    }
+
+    private void reset(boolean resetAllocator) {
+        mTrackTargetBufferSize = 0;
+        mIsBuffering = false;
+        if (resetAllocator) {
+            mAllocator.reset();
+        }
+    }
+
+}
@@ -1,12 +1,11 @@
 package com.kince.listvideo.player.player;
 
 import android.content.Context;
-import android.graphics.SurfaceTexture;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.TextUtils;
-import android.view.TextureView;
+import android.view.Surface;
 
 import com.google.android.exoplayer2.C;
 import com.google.android.exoplayer2.DefaultRenderersFactory;
@@ -16,6 +15,7 @@ import com.google.android.exoplayer2.ExoPlayerFactory;
 import com.google.android.exoplayer2.PlaybackParameters;
 import com.google.android.exoplayer2.SimpleExoPlayer;
 import com.google.android.exoplayer2.Timeline;
+import com.google.android.exoplayer2.decoder.DecoderCounters;
 import com.google.android.exoplayer2.extractor.DefaultExtractorsFactory;
 import com.google.android.exoplayer2.source.ExtractorMediaSource;
 import com.google.android.exoplayer2.source.MediaSource;
@@ -29,19 +29,26 @@ import com.google.android.exoplayer2.text.Cue;
 import com.google.android.exoplayer2.text.TextRenderer;
 import com.google.android.exoplayer2.trackselection.AdaptiveTrackSelection;
 import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
-import com.google.android.exoplayer2.trackselection.MappingTrackSelector;
 import com.google.android.exoplayer2.trackselection.TrackSelection;
 import com.google.android.exoplayer2.trackselection.TrackSelectionArray;
 import com.google.android.exoplayer2.upstream.DataSource;
-import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
 import com.google.android.exoplayer2.upstream.DefaultDataSourceFactory;
-import com.google.android.exoplayer2.upstream.DefaultHttpDataSourceFactory;
-import com.google.android.exoplayer2.upstream.HttpDataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
 import com.google.android.exoplayer2.util.Util;
+import com.kince.listvideo.player.cache.VideoCacheDataSourceFactory;
+import com.kince.listvideo.player.config.BufferProfile;
+import com.kince.listvideo.player.config.VideoPlayerConfig;
 import com.kince.listvideo.player.logger.ExoPlayerLogger;
+import com.kince.listvideo.player.logger.ExoPlayerMetrics;
+import com.kince.listvideo.player.metrics.PlaybackSession;
+import com.kince.listvideo.player.network.PersistentBandwidthMeter;
+import com.kince.listvideo.player.network.VideoHttpClient;
+import com.kince.listvideo.player.state.ScreenViewState;
 import com.kince.listvideo.player.state.VideoPlayerState;
+import com.kince.listvideo.player.utils.VideoPlayerLog;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Created by Kince
@@ -51,6 +58,8 @@ import java.util.List;
  * 因为此处的{@link #mUrl} 在开启缓存时是视频的缓存代理地址，不是
  * 用户播放视频时所传入的地址
  *
+ * SimpleExoPlayer在播放线程中创建，所有调用与回调都在播放线程；
+ * 主线程读取的播放状态、进度和时长是播放线程中缓存的值
  */
 public class ExoVideoPlayer extends AbsBaseVideoPlayer implements
         SimpleExoPlayer.VideoListener,
@@ -58,48 +67,263 @@ public class ExoVideoPlayer extends AbsBaseVideoPlayer implements
         ExoPlayer.EventListener {
 
     private static final String TAG = "VideoExoPlayer";
-    private static final DefaultBandwidthMeter BANDWIDTH_METER = new DefaultBandwidthMeter();
+
+    // Surface销毁前等待播放线程解除关联的最长时间
+    private static final long SURFACE_RELEASE_TIMEOUT_MS = 500;
 
     private Context mContext;
     private SimpleExoPlayer mExoPlayer;
     private DataSource.Factory mMediaDataSourceFactory;
-    private MappingTrackSelector mTrackSelector;
+    private DefaultTrackSelector mTrackSelector;
+    // 所有播放器共享并持久化的带宽估计，新播放器起播时不再从无估计值开始
+    private PersistentBandwidthMeter mBandwidthMeter;
+    // 按屏幕状态切换缓冲配置
+    private BufferProfileLoadControl mLoadControl;
+    // 各屏幕状态下缓冲占用内存的峰值，下标为屏幕状态
+    private final long[] mPeakBufferBytes = new long[ScreenViewState.SCREEN_STATE_SMALL_WINDOW + 1];
+    // 当前缓冲配置对应的屏幕状态
+    private int mBufferProfileScreenState = ScreenViewState.SCREEN_STATE_NORMAL;
     private ExoPlayerLogger mExoPlayerLogger;
-    private Handler mMainHandler;
+    // 播放线程的Handler，接收MediaSource的事件
+    private Handler mEventHandler;
+
+    // 以下状态在播放线程中更新，供主线程读取
+    private volatile long mCurrentPosition;
+    private volatile long mDuration = C.TIME_UNSET;
+    private volatile int mDroppedFrameCount;
+    // 是否已有等待执行的状态刷新
+    private final AtomicBoolean mStateUpdatePending = new AtomicBoolean();
+    private final Runnable mUpdateStateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mStateUpdatePending.set(false);
+            updateCachedState();
+        }
+    };
+
+    /**
+     * prepare命令的参数
+     */
+    private static final class PrepareRequest {
+        final String url;
+        // 预加载时为null
+        final Surface surface;
+
+        PrepareRequest(String url, Surface surface) {
+            this.url = url;
+            this.surface = surface;
+        }
+    }
 
     public ExoVideoPlayer(Context context) {
-        mContext = context.getApplicationContext();
-        initExoPlayer();
+        this(context, false);
     }
 
     public ExoVideoPlayer(Context context,boolean enableLog) {
         mContext = context.getApplicationContext();
-        initExoPlayer();
+        //日志开关决定ExoPlayerLogger的模式，需在创建播放器前设置
         this.mEnableLog = enableLog;
+        initExoPlayer();
+    }
+
+    @Override
+    public void onSurfaceCreated(final Surface surface) {
+        //直接输出到保留的Surface，不使用setVideoTextureView，避免更换TextureView时重建解码器输出
+        runOnPlaybackThread(new Runnable() {
+            @Override
+            public void run() {
+                mExoPlayer.setVideoSurface(surface);
+            }
+        });
+        super.onSurfaceCreated(surface);
     }
 
     @Override
-    public void setTextureView(TextureView textureView) {
-        if(textureView == null) {
-            mExoPlayer.clearVideoTextureView(mTextureView);
+    public void onSurfaceReleasing(Surface surface) {
+        //Surface随后即被释放，需等待播放线程解除关联；替换Surface时ExoPlayer会等待渲染线程处理完成
+        runOnPlaybackThreadAndWait(new Runnable() {
+            @Override
+            public void run() {
+                mExoPlayer.setVideoSurface(null);
+            }
+        }, SURFACE_RELEASE_TIMEOUT_MS);
+        super.onSurfaceReleasing(surface);
+    }
+
+    @Override
+    protected void prepare() {
+        final Surface surface = mSurfaceHolder.getSurface();
+        if (isPreloaded(mUrl)) {
+            //已预加载，只需关联Surface
+            mPreloadUrl = null;
+            runOnPlaybackThread(new Runnable() {
+                @Override
+                public void run() {
+                    mExoPlayer.setVideoSurface(surface);
+                    if (mExoPlayer.getPlaybackState() == ExoPlayer.STATE_READY) {
+                        onPrepared();
+                    }
+                }
+            });
+            return;
         }
-        super.setTextureView(textureView);
+        mPreloadUrl = null;
+        postCommand(CMD_PREPARE, 0, new PrepareRequest(mUrl, surface));
     }
 
     @Override
-    public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
-        if(mSurfaceTexture != null) {
+    public boolean preload(String url) {
+        mUrl = url;
+        mPreloadUrl = url;
+        postCommand(CMD_PREPARE, 0, new PrepareRequest(url, null));
+        return true;
+    }
+
+    @Override
+    protected void onCommand(int command, int arg, Object obj) {
+        if (mExoPlayer == null) {
+            //创建前即被释放
+            return;
+        }
+        switch (command) {
+            case CMD_PREPARE:
+                PrepareRequest request = (PrepareRequest) obj;
+                mExoPlayer.stop();
+                if (request.surface == null) {
+                    mExoPlayer.setPlayWhenReady(false);
+                } else {
+                    mExoPlayer.setVideoSurface(request.surface);
+                }
+                mExoPlayer.prepare(buildMediaSource(Uri.parse(request.url), null));
+                break;
+            case CMD_SEEK:
+                mExoPlayerLogger.onSeekStarted();
+                mExoPlayer.seekTo(arg);
+                break;
+            case CMD_STOP:
+                mExoPlayer.setPlayWhenReady(false);
+                mExoPlayer.stop();
+                break;
+            case CMD_RELEASE:
+                //会等待ExoPlayer内部线程释放完成
+                mExoPlayer.release();
+                return;
         }
-        mExoPlayer.setVideoTextureView(mTextureView);
-        super.onSurfaceTextureAvailable(surface, width, height);
+        updateCachedState();
     }
 
     @Override
-    protected void prepare() {
-        mExoPlayer.stop();
-        mExoPlayer.setVideoTextureView(mTextureView);
-        MediaSource source = buildMediaSource(Uri.parse(mUrl), null);
-        mExoPlayer.prepare(source);
+    public void setConfig(VideoPlayerConfig config) {
+        super.setConfig(config);
+        updateTrackSelectionParameters();
+        updateBufferProfile();
+    }
+
+    @Override
+    public void setScreenState(int screenState) {
+        super.setScreenState(screenState);
+        updateTrackSelectionParameters();
+        updateBufferProfile();
+    }
+
+    /**
+     * 按当前屏幕状态切换缓冲配置，并记录上一个配置下缓冲占用内存的峰值
+     */
+    private void updateBufferProfile() {
+        if (mConfig == null) {
+            return;
+        }
+        BufferProfile profile = mConfig.getBufferProfile(mScreenState);
+        if (profile == mLoadControl.getProfile()) {
+            mBufferProfileScreenState = mScreenState;
+            return;
+        }
+        long peakBytes = recordPeakBufferBytes();
+        VideoPlayerLog.d(TAG, "buffer profile changed, screen state %d -> %d, peak buffer bytes=%d",
+                mBufferProfileScreenState, mScreenState, peakBytes);
+        mBufferProfileScreenState = mScreenState;
+        mLoadControl.setProfile(profile);
+    }
+
+    private long recordPeakBufferBytes() {
+        long peakBytes = mLoadControl.getPeakAllocatedBytes();
+        int index = mBufferProfileScreenState;
+        if (index >= 0 && index < mPeakBufferBytes.length && peakBytes > mPeakBufferBytes[index]) {
+            mPeakBufferBytes[index] = peakBytes;
+        }
+        return peakBytes;
+    }
+
+    /**
+     * 当前缓冲占用的内存字节数
+     *
+     * @return
+     */
+    public long getBufferedBytes() {
+        return mLoadControl.getAllocatedBytes();
+    }
+
+    /**
+     * 指定屏幕状态的缓冲配置下，缓冲占用内存的峰值
+     *
+     * @param screenState {@link ScreenViewState}
+     * @return
+     */
+    public long getPeakBufferBytes(int screenState) {
+        if (screenState < 0 || screenState >= mPeakBufferBytes.length) {
+            return 0;
+        }
+        if (screenState == mBufferProfileScreenState) {
+            recordPeakBufferBytes();
+        }
+        return mPeakBufferBytes[screenState];
+    }
+
+    /**
+     * 当前缓冲配置下缓冲内存的上限
+     *
+     * @return
+     */
+    public long getBufferTargetBytes() {
+        return mLoadControl.getTargetBufferBytes();
+    }
+
+    @Override
+    protected void onViewportSizeChanged(int width, int height) {
+        updateTrackSelectionParameters();
+    }
+
+    /**
+     * 按当前屏幕状态限制可选择的视频码率，按显示区域大小限制分辨率，
+     * 列表和小窗口中不会选择超出显示区域所需的清晰度
+     */
+    private void updateTrackSelectionParameters() {
+        final int maxVideoBitrate = mConfig == null ? -1 : ScreenViewState.isFullScreen(mScreenState)
+                ? mConfig.getFullScreenMaxVideoBitrate() : mConfig.getListMaxVideoBitrate();
+        final int viewportWidth = mViewportWidth;
+        final int viewportHeight = mViewportHeight;
+        runOnPlaybackThread(new Runnable() {
+            @Override
+            public void run() {
+                DefaultTrackSelector.Parameters parameters = mTrackSelector.getParameters();
+                DefaultTrackSelector.Parameters newParameters = parameters;
+                if (maxVideoBitrate != -1 && newParameters.maxVideoBitrate != maxVideoBitrate) {
+                    newParameters = newParameters.withMaxVideoBitrate(maxVideoBitrate);
+                }
+                if (viewportWidth > 0 && viewportHeight > 0 && (newParameters.viewportWidth != viewportWidth
+                        || newParameters.viewportHeight != viewportHeight)) {
+                    newParameters = newParameters.withViewportSize(viewportWidth, viewportHeight, false);
+                }
+                if (newParameters != parameters) {
+                    mTrackSelector.setParameters(newParameters);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean isCacheDataSourceSupported() {
+        return true;
     }
 
     @Override
@@ -109,16 +333,12 @@ public class ExoVideoPlayer extends AbsBaseVideoPlayer implements
 
     @Override
     public void play() {
-        if(mExoPlayer.getPlaybackState() == ExoPlayer.STATE_READY) {
-            mExoPlayer.setPlayWhenReady(true);
-        }
+        setPlayWhenReady(true);
     }
 
     @Override
     public void pause() {
-        if(mExoPlayer.getPlaybackState() == ExoPlayer.STATE_READY) {
-            mExoPlayer.setPlayWhenReady(false);
-        }
+        setPlayWhenReady(false);
     }
 
     /**
@@ -126,54 +346,100 @@ public class ExoVideoPlayer extends AbsBaseVideoPlayer implements
      */
     @Override
     public void resume() {
-        if(mExoPlayer.getPlaybackState() == ExoPlayer.STATE_READY) {
-            mExoPlayer.setPlayWhenReady(true);
-        }
+        setPlayWhenReady(true);
+    }
+
+    /**
+     * 在播放线程中修改播放状态，只在准备完成后生效
+     *
+     * @param playWhenReady
+     */
+    private void setPlayWhenReady(final boolean playWhenReady) {
+        runOnPlaybackThread(new Runnable() {
+            @Override
+            public void run() {
+                if (mExoPlayer.getPlaybackState() == ExoPlayer.STATE_READY) {
+                    mExoPlayer.setPlayWhenReady(playWhenReady);
+                }
+            }
+        });
     }
 
     @Override
     public void stop() {
-        pause();
-        mExoPlayer.stop();
+        mPreloadUrl = null;
+        postCommand(CMD_STOP, 0, null);
     }
 
     /**
-     * 重置播放器
+     * 重置播放器，ExoPlayer停止后即可直接prepare下一个视频
      */
     @Override
     public void reset() {
-
+        stop();
     }
 
+    /**
+     * 释放播放器，ExoPlayer在播放线程中释放，不阻塞调用线程
+     */
     @Override
     public void release() {
-        pause();
-        mExoPlayer.release();
+        mPreloadUrl = null;
+        releaseSurface();
+        postCommand(CMD_RELEASE, 0, null);
     }
 
     @Override
-    public void setPlayerState(int state) {
-        mState = state;
+    public int getCurrentPosition() {
+        requestStateUpdate();
+        return (int) mCurrentPosition;
     }
 
     @Override
-    public int getPlayerState() {
-        return mState;
+    public int getDuration() {
+        requestStateUpdate();
+        return (int) mDuration;
     }
 
     @Override
-    public int getCurrentPosition() {
-        return (int) mExoPlayer.getCurrentPosition();
+    public void seekTo(int position) {
+        //跳转完成前进度显示为目标位置
+        mCurrentPosition = position;
+        postCommand(CMD_SEEK, position, null);
     }
 
     @Override
-    public int getDuration() {
-        return (int) mExoPlayer.getDuration();
+    public int getDroppedFrameCount() {
+        requestStateUpdate();
+        return mDroppedFrameCount;
     }
 
-    @Override
-    public void seekTo(int position) {
-        mExoPlayer.seekTo(position);
+    /**
+     * 请求播放线程刷新缓存的状态，主线程读取到的是上一次刷新的值
+     */
+    private void requestStateUpdate() {
+        if (mStateUpdatePending.compareAndSet(false, true)) {
+            runOnPlaybackThread(mUpdateStateRunnable);
+        }
+    }
+
+    /**
+     * 在播放线程中刷新缓存的状态
+     */
+    private void updateCachedState() {
+        mCurrentPosition = mExoPlayer.getCurrentPosition();
+        mDuration = mExoPlayer.getDuration();
+        DecoderCounters counters = mExoPlayer.getVideoDecoderCounters();
+        mDroppedFrameCount = counters == null ? 0 : counters.droppedOutputBufferCount;
+    }
+
+    /**
+     * 获取播放指标，可在任意线程调用
+     *
+     * @return
+     */
+    public ExoPlayerMetrics getExoPlayerMetrics() {
+        return mExoPlayerLogger.getMetrics();
     }
 
     /**
@@ -199,6 +465,7 @@ public class ExoVideoPlayer extends AbsBaseVideoPlayer implements
     /**--------------------- ExoPlayer.EventListener ----------------------------**/
     @Override
     public void onPlayerStateChanged(boolean playWhenReady, int playbackState) {
+        updateCachedState();
         if(playbackState == ExoPlayer.STATE_ENDED) {//播放结束
             onCompletion();
         } else if(playbackState == ExoPlayer.STATE_READY) {//准备播放
@@ -211,9 +478,10 @@ public class ExoVideoPlayer extends AbsBaseVideoPlayer implements
     }
 
     /**
-     * video prepared complete call back
+     * video prepared complete call back，在播放线程回调
      */
     public void onPrepared() {
+        markStage(PlaybackSession.STAGE_PREPARED);
         if(mPlayCallback != null) {
             mPlayCallback.onDurationChanged((int) mExoPlayer.getDuration());
             mPlayCallback.onPlayStateChanged(VideoPlayerState.STATE_PLAYING);
@@ -249,7 +517,7 @@ public class ExoVideoPlayer extends AbsBaseVideoPlayer implements
 
     @Override
     public void onTimelineChanged(Timeline timeline, Object manifest) {
-
+        updateCachedState();
     }
 
     @Override
@@ -264,7 +532,7 @@ public class ExoVideoPlayer extends AbsBaseVideoPlayer implements
 
     @Override
     public void onPositionDiscontinuity() {
-
+        updateCachedState();
     }
 
     @Override
@@ -286,24 +554,28 @@ public class ExoVideoPlayer extends AbsBaseVideoPlayer implements
 
     @Override
     public void onRenderedFirstFrame() {
+        onFirstFrameRendered();
 
     }
 
     private MediaSource buildMediaSource(Uri uri, String overrideExtension) {
+        //设置了缓存时直接读写缓存，不经过本地代理
+        DataSource.Factory mediaDataSourceFactory = mCache == null ? mMediaDataSourceFactory
+                : new VideoCacheDataSourceFactory(mCache, mMediaDataSourceFactory, mCacheAdmissionController);
         int type = Util.inferContentType(!TextUtils.isEmpty(overrideExtension) ? "." + overrideExtension
                 : uri.getLastPathSegment());
         switch (type) {
             case C.TYPE_SS:
                 return new SsMediaSource(uri, buildDataSourceFactory(false),
-                        new DefaultSsChunkSource.Factory(mMediaDataSourceFactory), mMainHandler, mExoPlayerLogger);
+                        new DefaultSsChunkSource.Factory(mediaDataSourceFactory), mEventHandler, mExoPlayerLogger);
             case C.TYPE_DASH:
                 return new DashMediaSource(uri, buildDataSourceFactory(false),
-                        new DefaultDashChunkSource.Factory(mMediaDataSourceFactory), mMainHandler, mExoPlayerLogger);
+                        new DefaultDashChunkSource.Factory(mediaDataSourceFactory), mEventHandler, mExoPlayerLogger);
             case C.TYPE_HLS:
-                return new HlsMediaSource(uri, mMediaDataSourceFactory, mMainHandler, mExoPlayerLogger);
+                return new HlsMediaSource(uri, mediaDataSourceFactory, mEventHandler, mExoPlayerLogger);
             case C.TYPE_OTHER:
-                return new ExtractorMediaSource(uri, mMediaDataSourceFactory, new DefaultExtractorsFactory(),
-                        mMainHandler, mExoPlayerLogger);
+                return new ExtractorMediaSource(uri, mediaDataSourceFactory, new DefaultExtractorsFactory(),
+                        mEventHandler, mExoPlayerLogger);
             default: {
                 throw new IllegalStateException("Unsupported type: " + type);
             }
@@ -313,50 +585,61 @@ public class ExoVideoPlayer extends AbsBaseVideoPlayer implements
     /**--------------------- 创建SimpleExoPlayer ----------------------------**/
 
     private void initExoPlayer() {
+        mBandwidthMeter = PersistentBandwidthMeter.getInstance(mContext);
         mMediaDataSourceFactory = buildDataSourceFactory(true);
 
-        TrackSelection.Factory videoTrackSelectionFactory = new AdaptiveTrackSelection.Factory(BANDWIDTH_METER);
+        TrackSelection.Factory videoTrackSelectionFactory = new AdaptiveTrackSelection.Factory(mBandwidthMeter);
         mTrackSelector = new DefaultTrackSelector(videoTrackSelectionFactory);
-        mExoPlayerLogger = new ExoPlayerLogger(mTrackSelector);
-        mMainHandler = new Handler(Looper.getMainLooper());
+        //始终汇总播放指标，只在开启日志时输出事件日志
+        mExoPlayerLogger = new ExoPlayerLogger(mTrackSelector, mEnableLog
+                ? ExoPlayerLogger.MODE_LOG | ExoPlayerLogger.MODE_METRICS : ExoPlayerLogger.MODE_METRICS);
+
+        mLoadControl = new BufferProfileLoadControl(BufferProfile.createFastStart());
+        //在播放线程中创建，ExoPlayer的事件也回调到播放线程
+        runOnPlaybackThread(new Runnable() {
+            @Override
+            public void run() {
+                createExoPlayer();
+            }
+        });
+    }
 
+    private void createExoPlayer() {
+        mEventHandler = new Handler(Looper.myLooper());
         DefaultRenderersFactory renderersFactory = new DefaultRenderersFactory(mContext,
                 null, DefaultRenderersFactory.EXTENSION_RENDERER_MODE_OFF);
 
-        mExoPlayer =  ExoPlayerFactory.newSimpleInstance(renderersFactory, mTrackSelector);
-        mExoPlayer.addListener(mExoPlayerLogger);
-        mExoPlayer.setAudioDebugListener(mExoPlayerLogger);
-        mExoPlayer.setVideoDebugListener(mExoPlayerLogger);
-        mExoPlayer.setMetadataOutput(mExoPlayerLogger);
-
-        mExoPlayer.setTextOutput(null);
-        mExoPlayer.setVideoListener(null);
-        mExoPlayer.removeListener(this);
-        mExoPlayer.setVideoTextureView(null);
+        SimpleExoPlayer exoPlayer = ExoPlayerFactory.newSimpleInstance(renderersFactory, mTrackSelector, mLoadControl);
+        exoPlayer.addListener(mExoPlayerLogger);
+        exoPlayer.setAudioDebugListener(mExoPlayerLogger);
+        exoPlayer.setVideoDebugListener(mExoPlayerLogger);
+        exoPlayer.setMetadataOutput(mExoPlayerLogger);
 
-        mExoPlayer.setVideoListener(this);
-        mExoPlayer.addListener(this);
-        mExoPlayer.setTextOutput(this);
+        exoPlayer.setVideoListener(this);
+        exoPlayer.addListener(this);
+        exoPlayer.setTextOutput(this);
+        mExoPlayer = exoPlayer;
     }
 
     /**
      * Returns a new DataSource factory.
      *
-     * @param useBandwidthMeter Whether to set {@link #BANDWIDTH_METER} as a listener to the new
+     * @param useBandwidthMeter Whether to set {@link #mBandwidthMeter} as a listener to the new
      *                          DataSource factory.
      * @return A new DataSource factory.
      */
     private DataSource.Factory buildDataSourceFactory(boolean useBandwidthMeter) {
-        return buildDataSourceFactory(useBandwidthMeter ? BANDWIDTH_METER : null);
+        return buildDataSourceFactory(useBandwidthMeter ? mBandwidthMeter : null);
     }
 
-    private DataSource.Factory buildDataSourceFactory(DefaultBandwidthMeter bandwidthMeter) {
+    private DataSource.Factory buildDataSourceFactory(TransferListener<Object> bandwidthMeter) {
         return new DefaultDataSourceFactory(mContext, bandwidthMeter,
                 buildHttpDataSourceFactory(bandwidthMeter));
     }
 
-    private HttpDataSource.Factory buildHttpDataSourceFactory(DefaultBandwidthMeter bandwidthMeter) {
-        return new DefaultHttpDataSourceFactory(Util.getUserAgent(mContext, TAG), bandwidthMeter);
+    private DataSource.Factory buildHttpDataSourceFactory(TransferListener<Object> bandwidthMeter) {
+        //共用连接池和超时配置，HttpDataSource实现可由VideoPlayerConfig替换
+        return VideoHttpClient.getInstance().newDataSourceFactory(Util.getUserAgent(mContext, TAG), bandwidthMeter);
     }
 
 }
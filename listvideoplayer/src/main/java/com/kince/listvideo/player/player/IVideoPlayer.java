@@ -47,7 +47,7 @@ public interface IVideoPlayer {
     void release();
 
     /**
-     * 设置播放状态
+     * 设置播放状态，只允许按{@link com.kince.listvideo.player.state.PlayerStateMachine}定义的规则迁移
      *
      * @param state {@link VideoPlayerState}
      */
@@ -122,4 +122,18 @@ public interface IVideoPlayer {
 
     }
 
+    /**
+     * 起播阶段回调，{@link PlayCallback}同时实现该接口时才会回调
+     */
+    interface PlaybackStageListener {
+
+        /**
+         * 起播到达某一阶段，用于统计起播耗时，可在任意线程回调
+         *
+         * @param stage {@link com.kince.listvideo.player.metrics.PlaybackSession}中定义的阶段
+         */
+        void onPlaybackStage(int stage);
+
+    }
+
 }
@@ -1,16 +1,17 @@
 package com.kince.listvideo.player.player;
 
-import android.graphics.SurfaceTexture;
 import android.media.AudioManager;
 import android.media.MediaPlayer;
-import android.os.Handler;
-import android.os.HandlerThread;
-import android.os.Looper;
-import android.os.Message;
+import android.os.Build;
+import android.os.SystemClock;
 import android.view.Surface;
-import android.view.TextureView;
 
+import com.kince.listvideo.player.metrics.LatencyHistogram;
+import com.kince.listvideo.player.metrics.PlaybackSession;
 import com.kince.listvideo.player.state.VideoPlayerState;
+import com.kince.listvideo.player.utils.VideoPlayerLog;
+
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Created by Kince
@@ -19,6 +20,12 @@ import com.kince.listvideo.player.state.VideoPlayerState;
  * {@link VideoPlayerManager#getVideoUrl()}
  * 因为此处的{@link #mUrl} 在开启缓存时是视频的缓存代理地址，不是用户播放视频时所传入的地址
  *
+ * 切换视频时通过{@link MediaPlayer#reset()}复用同一个MediaPlayer，只有{@link #release()}后才会重新创建，
+ * 新建与复用两种情况下的prepare耗时分别统计，见{@link #getPrepareHistogram(boolean)}
+ *
+ * MediaPlayer在播放线程中创建，所有调用与回调都在播放线程，并按MediaPlayer自身的状态检查调用是否合法，
+ * 避免在Idle等状态下调用触发OnErrorListener；主线程读取的进度和时长是播放线程中缓存的值
+ *
  */
 public class MediaVideoPlayer extends AbsBaseVideoPlayer implements
         MediaPlayer.OnPreparedListener,
@@ -30,82 +37,164 @@ public class MediaVideoPlayer extends AbsBaseVideoPlayer implements
 
     private static final String TAG = "VideoMediaPlayer";
 
-    private static final int MSG_PREPARE = 1;
-    private static final int MSG_RELEASE = 2;
+    // 跳转命令的参数，表示跳转到附近的关键帧
+    private static final Object SEEK_TO_SYNC_FRAME = new Object();
+    // Surface销毁前等待播放线程解除关联的最长时间
+    private static final long SURFACE_RELEASE_TIMEOUT_MS = 500;
 
+    // 以下字段只在播放线程访问
     private MediaPlayer mMediaPlayer;
-    private HandlerThread mMediaHandlerThread;
-    private MediaHandler mMediaHandler;
+    // MediaPlayer是否已释放，释放后prepare时重新创建，初始时尚未创建
+    private boolean mMediaPlayerReleased = true;
+    // MediaPlayer是否已prepare完成，reset、release后恢复为false
+    private boolean mMediaPlayerPrepared;
+
+    // 以下状态在播放线程中更新，供主线程读取
+    private volatile int mCurrentPosition;
+    private volatile int mDuration;
+    // 是否已有等待执行的状态刷新
+    private final AtomicBoolean mStateUpdatePending = new AtomicBoolean();
+    private final Runnable mUpdateStateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mStateUpdatePending.set(false);
+            updateCachedState();
+        }
+    };
+
+    // 当前prepare开始的时间及是否复用了MediaPlayer
+    private volatile long mPrepareStartTime;
+    private volatile boolean mPrepareReused;
+    // 从创建或重置MediaPlayer到prepare完成的耗时，分别统计新建和复用
+    private final LatencyHistogram mNewPlayerPrepareHistogram = new LatencyHistogram();
+    private final LatencyHistogram mReusedPlayerPrepareHistogram = new LatencyHistogram();
 
     public MediaVideoPlayer() {
         this(false);
     }
 
+    /**
+     * MediaPlayer在第一次prepare时于播放线程中创建，其回调也在播放线程
+     *
+     * @param enableLog
+     */
     public MediaVideoPlayer(boolean enableLog) {
-        mMediaPlayer = new MediaPlayer();
-        mMediaHandlerThread = new HandlerThread(TAG);
-        mMediaHandlerThread.start();
-        mMediaHandler = new MediaHandler(mMediaHandlerThread.getLooper());
         mEnableLog = enableLog;
     }
 
+    /**
+     * 设置监听，reset后仍然有效，只需在创建时设置一次
+     *
+     * @param mediaPlayer
+     */
+    private void initMediaPlayer(MediaPlayer mediaPlayer) {
+        mediaPlayer.setOnPreparedListener(this);
+        mediaPlayer.setOnCompletionListener(this);
+        mediaPlayer.setOnBufferingUpdateListener(this);
+        mediaPlayer.setScreenOnWhilePlaying(true);
+        mediaPlayer.setOnSeekCompleteListener(this);
+        mediaPlayer.setOnErrorListener(this);
+        mediaPlayer.setOnInfoListener(this);
+    }
+
     @Override
-    public void setTextureView(TextureView textureView) {
-        if (textureView == null && mSurfaceTexture != null) {
-            mSurfaceTexture.release();
-        }
-        super.setTextureView(textureView);
+    public void onSurfaceCreated(final Surface surface) {
+        runOnPlaybackThread(new Runnable() {
+            @Override
+            public void run() {
+                setSurface(surface);
+            }
+        });
+        super.onSurfaceCreated(surface);
     }
 
     @Override
-    public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
+    public void onSurfaceReleasing(Surface surface) {
+        //Surface随后即被释放，需等待播放线程解除关联
+        runOnPlaybackThreadAndWait(new Runnable() {
+            @Override
+            public void run() {
+                setSurface(null);
+            }
+        }, SURFACE_RELEASE_TIMEOUT_MS);
+        super.onSurfaceReleasing(surface);
+    }
+
+    /**
+     * 在播放线程调用
+     *
+     * @param surface
+     */
+    private void setSurface(Surface surface) {
+        if (mMediaPlayerReleased) {
+            return;
+        }
         try {
-            mMediaPlayer.setSurface(new Surface(surface));
+            mMediaPlayer.setSurface(surface);
         } catch (Exception e) {
-            e.printStackTrace();
+            VideoPlayerLog.e(TAG, "set surface failed", e);
         }
-        super.onSurfaceTextureAvailable(surface, width, height);
     }
 
-    class MediaHandler extends Handler {
-
-        public MediaHandler(Looper looper) {
-            super(looper);
-        }
-
-        @Override
-        public void handleMessage(Message msg) {
-            super.handleMessage(msg);
-            switch (msg.what) {
-                case MSG_RELEASE:
+    @Override
+    protected void onCommand(int command, int arg, Object obj) {
+        switch (command) {
+            case CMD_STOP:
+                if (!mMediaPlayerReleased) {
+                    //保留MediaPlayer，下次prepare时复用
+                    mMediaPlayer.reset();
+                }
+                mMediaPlayerPrepared = false;
+                updateCachedState();
+                break;
+            case CMD_RELEASE:
+                if (!mMediaPlayerReleased) {
                     mMediaPlayer.release();
+                    mMediaPlayerReleased = true;
+                }
+                mMediaPlayerPrepared = false;
+                break;
+            case CMD_SEEK:
+                if (!mMediaPlayerPrepared) {
                     break;
-                case MSG_PREPARE:
-                    try {
-                        mMediaPlayer.release();
+                }
+                try {
+                    if (obj != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                        mMediaPlayer.seekTo(arg, MediaPlayer.SEEK_CLOSEST_SYNC);
+                    } else {
+                        mMediaPlayer.seekTo(arg);
+                    }
+                } catch (Exception e) {
+                    VideoPlayerLog.e(TAG, "seek failed, position=" + arg, e);
+                }
+                break;
+            case CMD_PREPARE:
+                try {
+                    mPrepareStartTime = SystemClock.elapsedRealtime();
+                    mPrepareReused = !mMediaPlayerReleased;
+                    mMediaPlayerPrepared = false;
+                    if (mMediaPlayerReleased) {
                         mMediaPlayer = new MediaPlayer();
-                        mMediaPlayer.setAudioStreamType(AudioManager.STREAM_MUSIC);
-                        mMediaPlayer.setOnPreparedListener(MediaVideoPlayer.this);
-                        mMediaPlayer.setOnCompletionListener(MediaVideoPlayer.this);
-                        mMediaPlayer.setOnBufferingUpdateListener(MediaVideoPlayer.this);
-                        mMediaPlayer.setScreenOnWhilePlaying(true);
-                        mMediaPlayer.setOnSeekCompleteListener(MediaVideoPlayer.this);
-                        mMediaPlayer.setOnErrorListener(MediaVideoPlayer.this);
-                        mMediaPlayer.setOnInfoListener(MediaVideoPlayer.this);
-                        mMediaPlayer.setDataSource(mUrl);
-                        mMediaPlayer.prepareAsync();
-                        mMediaPlayer.setSurface(new Surface(mSurfaceTexture));
-                    } catch (Exception e) {
-                        e.printStackTrace();
+                        initMediaPlayer(mMediaPlayer);
+                        mMediaPlayerReleased = false;
+                    } else {
+                        //从任意状态回到Idle，保留原生播放器和监听
+                        mMediaPlayer.reset();
                     }
-                    break;
-            }
+                    mMediaPlayer.setAudioStreamType(AudioManager.STREAM_MUSIC);
+                    mMediaPlayer.setDataSource(mUrl);
+                    mMediaPlayer.setSurface((Surface) obj);
+                    mMediaPlayer.prepareAsync();
+                } catch (Exception e) {
+                    VideoPlayerLog.e(TAG, "prepare failed, url=" + mUrl, e);
+                }
+                break;
         }
     }
 
     @Override
     protected void prepare() {
-        mMediaHandler.obtainMessage(MSG_PREPARE).sendToTarget();
+        postCommand(CMD_PREPARE, 0, mSurfaceHolder.getSurface());
     }
 
     @Override
@@ -115,14 +204,23 @@ public class MediaVideoPlayer extends AbsBaseVideoPlayer implements
 
     @Override
     public void play() {
-        mMediaPlayer.start();
+        startMediaPlayer();
     }
 
     @Override
     public void pause() {
-        if (getPlayerState() == VideoPlayerState.STATE_PLAYING) {
-            mMediaPlayer.pause();
+        if (getPlayerState() != VideoPlayerState.STATE_PLAYING) {
+            return;
         }
+        runOnPlaybackThread(new Runnable() {
+            @Override
+            public void run() {
+                //Prepared状态下pause会进入Error状态
+                if (mMediaPlayerPrepared && mMediaPlayer.isPlaying()) {
+                    mMediaPlayer.pause();
+                }
+            }
+        });
     }
 
     /**
@@ -130,51 +228,113 @@ public class MediaVideoPlayer extends AbsBaseVideoPlayer implements
      */
     @Override
     public void resume() {
-        mMediaPlayer.start();
+        startMediaPlayer();
+    }
+
+    private void startMediaPlayer() {
+        runOnPlaybackThread(new Runnable() {
+            @Override
+            public void run() {
+                if (mMediaPlayerPrepared) {
+                    mMediaPlayer.start();
+                }
+            }
+        });
     }
 
     @Override
     public void stop() {
-        mMediaHandler.obtainMessage(MSG_RELEASE).sendToTarget();
+        postCommand(CMD_STOP, 0, null);
     }
 
 
     /**
-     * 重置播放器
+     * 重置播放器，保留MediaPlayer供下一个视频复用
      */
     @Override
     public void reset() {
-
+        postCommand(CMD_STOP, 0, null);
     }
 
-    @Override
-    public void release() {
-        mMediaHandler.obtainMessage(MSG_RELEASE).sendToTarget();
+    /**
+     * prepare耗时统计，从创建或重置MediaPlayer开始到prepare完成
+     *
+     * @param reused true为复用MediaPlayer时的统计，false为新建MediaPlayer时的统计
+     * @return
+     */
+    public LatencyHistogram getPrepareHistogram(boolean reused) {
+        return reused ? mReusedPlayerPrepareHistogram : mNewPlayerPrepareHistogram;
     }
 
-    @Override
-    public void setPlayerState(int state) {
-        mState = state;
+    /**
+     * 复用MediaPlayer相比新建节省的prepare耗时，按p50计算
+     *
+     * @return 任一情况尚无统计时返回0
+     */
+    public long getPrepareTimeSavedMillis() {
+        if (mNewPlayerPrepareHistogram.getCount() == 0 || mReusedPlayerPrepareHistogram.getCount() == 0) {
+            return 0;
+        }
+        return mNewPlayerPrepareHistogram.getPercentile(50) - mReusedPlayerPrepareHistogram.getPercentile(50);
     }
 
     @Override
-    public int getPlayerState() {
-        return mState;
+    public void release() {
+        releaseSurface();
+        postCommand(CMD_RELEASE, 0, null);
     }
 
     @Override
     public int getCurrentPosition() {
-        return mMediaPlayer.getCurrentPosition();
+        requestStateUpdate();
+        return mCurrentPosition;
     }
 
     @Override
     public int getDuration() {
-        return mMediaPlayer.getDuration();
+        requestStateUpdate();
+        return mDuration;
+    }
+
+    /**
+     * 请求播放线程刷新缓存的状态，主线程读取到的是上一次刷新的值
+     */
+    private void requestStateUpdate() {
+        if (mStateUpdatePending.compareAndSet(false, true)) {
+            runOnPlaybackThread(mUpdateStateRunnable);
+        }
+    }
+
+    /**
+     * 在播放线程中刷新缓存的状态，MediaPlayer未prepare完成时进度和时长为0
+     */
+    private void updateCachedState() {
+        if (mMediaPlayerPrepared) {
+            mCurrentPosition = mMediaPlayer.getCurrentPosition();
+            mDuration = mMediaPlayer.getDuration();
+        } else {
+            mCurrentPosition = 0;
+            mDuration = 0;
+        }
     }
 
     @Override
     public void seekTo(int position) {
-        mMediaPlayer.seekTo(position);
+        //跳转完成前进度显示为目标位置
+        mCurrentPosition = position;
+        postCommand(CMD_SEEK, position, null);
+    }
+
+    /**
+     * Android 8.0以下不支持跳转到关键帧，总是精确跳转
+     *
+     * @param position
+     * @param exact
+     */
+    @Override
+    public void seekTo(int position, boolean exact) {
+        mCurrentPosition = position;
+        postCommand(CMD_SEEK, position, exact ? null : SEEK_TO_SYNC_FRAME);
     }
 
     /**
@@ -199,6 +359,7 @@ public class MediaVideoPlayer extends AbsBaseVideoPlayer implements
 
     @Override
     public void onSeekComplete(MediaPlayer mp) {
+        updateCachedState();
         if (mPlayCallback != null && isPlaying()) {
             mPlayCallback.onPlayStateChanged(VideoPlayerState.STATE_PLAYING);
         }
@@ -211,6 +372,7 @@ public class MediaVideoPlayer extends AbsBaseVideoPlayer implements
 
     @Override
     public void onCompletion(MediaPlayer mp) {
+        updateCachedState();
         if (mPlayCallback != null) {
             mPlayCallback.onComplete();
         }
@@ -218,6 +380,8 @@ public class MediaVideoPlayer extends AbsBaseVideoPlayer implements
 
     @Override
     public boolean onError(MediaPlayer mp, int what, int extra) {
+        //进入Error状态，需reset后才能再次使用
+        mMediaPlayerPrepared = false;
         if (mPlayCallback != null) {
             mPlayCallback.onError("Play error, what=" + what + ", extra=" + extra);
         }
@@ -226,11 +390,22 @@ public class MediaVideoPlayer extends AbsBaseVideoPlayer implements
 
     @Override
     public boolean onInfo(MediaPlayer mp, int what, int extra) {
+        if (what == MediaPlayer.MEDIA_INFO_VIDEO_RENDERING_START) {
+            onFirstFrameRendered();
+        }
         return false;
     }
 
     @Override
     public void onPrepared(MediaPlayer mp) {
+        mMediaPlayerPrepared = true;
+        updateCachedState();
+        markStage(PlaybackSession.STAGE_PREPARED);
+        long prepareTime = SystemClock.elapsedRealtime() - mPrepareStartTime;
+        getPrepareHistogram(mPrepareReused).record(prepareTime);
+        if (mEnableLog) {
+            VideoPlayerLog.d(TAG, "prepared in %d ms, reused=%s", (int) prepareTime, mPrepareReused);
+        }
         if (mPlayCallback != null) {
             mPlayCallback.onDurationChanged(mp.getDuration());
             mPlayCallback.onPlayStateChanged(VideoPlayerState.STATE_PLAYING);
@@ -0,0 +1,198 @@
+package com.kince.listvideo.player.player;
+
+import com.kince.listvideo.player.cache.CacheAdmissionController;
+import com.kince.listvideo.player.cache.IVideoPlayerCache;
+import com.kince.listvideo.player.config.VideoPlayerConfig;
+import com.kince.listvideo.player.factory.IVideoPlayerFactory;
+import com.kince.listvideo.player.state.ScreenViewState;
+import com.kince.listvideo.player.state.VideoPlayerState;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Created by Kince
+ *
+ * 播放器实例池，由{@link VideoPlayerManager}持有
+ *
+ * 池中的播放器分为三类：
+ * 1.正在使用（leased）的播放器，即当前与UI绑定的播放器
+ * 2.已按视频地址预加载完成的播放器，按LRU顺序保存，切换到该视频时可直接使用，省去prepare的时间
+ * 3.空闲的播放器，已停止播放但未释放，可被再次使用，避免重复创建播放器实例
+ *
+ * 池中播放器实例总数不超过{@link #mMaxSize}，超出时淘汰最久未使用的预加载播放器
+ */
+final class PlayerPool {
+
+    private final VideoPlayerConfig mConfig;
+    private final IVideoPlayerFactory mPlayerFactory;
+    private final int mMaxSize;
+
+    // 预加载的播放器，key为用户传入的视频地址，按访问顺序排列
+    private final LinkedHashMap<String, AbsBaseVideoPlayer> mPreparedPlayers =
+            new LinkedHashMap<>(4, 0.75f, true);
+    // 空闲的播放器
+    private final LinkedList<AbsBaseVideoPlayer> mIdlePlayers = new LinkedList<>();
+    // 正在使用中的播放器数量
+    private int mLeasedCount;
+
+    PlayerPool(VideoPlayerConfig config) {
+        mConfig = config;
+        mPlayerFactory = config.getPlayerFactory();
+        mMaxSize = config.getPlayerPoolSize() < 1 ? 1 : config.getPlayerPoolSize();
+    }
+
+    /**
+     * 获取一个播放器实例，优先使用已为该地址预加载的播放器，其次使用空闲播放器，
+     * 都没有时再淘汰预加载播放器或创建新的播放器
+     *
+     * @param url 视频地址，可以为null
+     * @return
+     */
+    synchronized AbsBaseVideoPlayer acquire(String url) {
+        AbsBaseVideoPlayer player = url == null ? null : mPreparedPlayers.remove(url);
+        if (player == null) {
+            player = obtainFreePlayer();
+        }
+        mLeasedCount++;
+        return player;
+    }
+
+    /**
+     * 获取已为该地址预加载的播放器
+     *
+     * @param url
+     * @return 没有预加载时返回null
+     */
+    synchronized AbsBaseVideoPlayer acquirePrepared(String url) {
+        if (url == null) {
+            return null;
+        }
+        AbsBaseVideoPlayer player = mPreparedPlayers.remove(url);
+        if (player != null) {
+            mLeasedCount++;
+        }
+        return player;
+    }
+
+    /**
+     * 归还播放器，播放器会被停止并放入空闲队列，超出池容量时直接释放
+     *
+     * @param player
+     */
+    synchronized void recycle(AbsBaseVideoPlayer player) {
+        mLeasedCount--;
+        player.setPlayCallback(null);
+        player.stop();
+        player.setPlayerState(VideoPlayerState.STATE_NORMAL);
+        if (size() >= mMaxSize) {
+            player.release();
+        } else {
+            mIdlePlayers.add(player);
+        }
+    }
+
+    /**
+     * 丢弃已被外部释放的播放器
+     *
+     * @param player
+     */
+    synchronized void discard(AbsBaseVideoPlayer player) {
+        mLeasedCount--;
+    }
+
+    /**
+     * 为指定地址预加载一个播放器
+     *
+     * @param url     用户传入的视频地址
+     * @param playUrl 播放器真正使用的地址（开启缓存时为代理地址）
+     * @param cache   播放器直接读写的缓存，可以为null
+     * @param admissionController 写入缓存前的准入检查，可以为null
+     * @return 是否开始了预加载
+     */
+    synchronized boolean preload(String url, String playUrl, IVideoPlayerCache cache,
+                                 CacheAdmissionController admissionController) {
+        if (mPreparedPlayers.containsKey(url)) {
+            //仅更新LRU顺序
+            mPreparedPlayers.get(url);
+            return true;
+        }
+        if (mIdlePlayers.isEmpty() && mPreparedPlayers.isEmpty() && size() >= mMaxSize) {
+            return false;
+        }
+        AbsBaseVideoPlayer player = obtainFreePlayer();
+        //预加载的都是列表中的视频
+        player.setScreenState(ScreenViewState.SCREEN_STATE_NORMAL);
+        player.setCache(cache, admissionController);
+        if (!player.preload(playUrl)) {
+            mIdlePlayers.add(player);
+            return false;
+        }
+        mPreparedPlayers.put(url, player);
+        return true;
+    }
+
+    /**
+     * 指定地址是否已有预加载的播放器
+     *
+     * @param url
+     * @return
+     */
+    synchronized boolean isPrepared(String url) {
+        return mPreparedPlayers.containsKey(url);
+    }
+
+    /**
+     * 淘汰指定地址的预加载播放器
+     *
+     * @param url
+     */
+    synchronized void evict(String url) {
+        AbsBaseVideoPlayer player = mPreparedPlayers.remove(url);
+        if (player != null) {
+            player.stop();
+            mIdlePlayers.add(player);
+        }
+    }
+
+    /**
+     * 释放池中所有未使用的播放器
+     */
+    synchronized void clear() {
+        for (AbsBaseVideoPlayer player : mPreparedPlayers.values()) {
+            player.release();
+        }
+        mPreparedPlayers.clear();
+        for (AbsBaseVideoPlayer player : mIdlePlayers) {
+            player.release();
+        }
+        mIdlePlayers.clear();
+    }
+
+    /**
+     * @return 池中播放器实例总数（包含正在使用的）
+     */
+    synchronized int size() {
+        return mLeasedCount + mPreparedPlayers.size() + mIdlePlayers.size();
+    }
+
+    private AbsBaseVideoPlayer obtainFreePlayer() {
+        if (!mIdlePlayers.isEmpty()) {
+            return mIdlePlayers.poll();
+        }
+        if (size() >= mMaxSize && !mPreparedPlayers.isEmpty()) {
+            //淘汰最久未使用的预加载播放器
+            Iterator<Map.Entry<String, AbsBaseVideoPlayer>> iterator = mPreparedPlayers.entrySet().iterator();
+            AbsBaseVideoPlayer eldest = iterator.next().getValue();
+            iterator.remove();
+            eldest.stop();
+            return eldest;
+        }
+        AbsBaseVideoPlayer player = mPlayerFactory.create();
+        player.setConfig(mConfig);
+        return player;
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.kince.listvideo.player.player;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Created by Kince
+ *
+ * 合并拖动进度时的连续seek
+ *
+ * 拖动中每帧最多发起一次seek，期间到来的位置只保留最后一个，并优先跳转到附近的关键帧；
+ * 松手时取消尚未执行的seek，精确跳转一次到最终位置
+ *
+ * 只在主线程使用
+ */
+final class SeekCoalescer {
+
+    // 拖动中两次seek的最小间隔，约一帧
+    private static final long FRAME_WINDOW_MS = 16;
+
+    interface Target {
+
+        /**
+         * @param position 跳转位置
+         * @param exact    是否精确跳转，为false时可跳转到附近的关键帧
+         */
+        void seek(int position, boolean exact);
+
+    }
+
+    /**
+     * 时钟与延时执行，默认为主线程Handler，测试时可替换
+     */
+    interface Scheduler {
+
+        long uptimeMillis();
+
+        void postDelayed(Runnable runnable, long delayMs);
+
+        void removeCallbacks(Runnable runnable);
+
+    }
+
+    private final Target mTarget;
+    private final Scheduler mScheduler;
+
+    private boolean mScrubbing;
+    // 等待执行的位置，-1表示没有
+    private int mPendingPosition = -1;
+    private long mLastSeekTime;
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    SeekCoalescer(Target target) {
+        this(target, new MainThreadScheduler());
+    }
+
+    SeekCoalescer(Target target, Scheduler scheduler) {
+        mTarget = target;
+        mScheduler = scheduler;
+    }
+
+    /**
+     * 拖动中跳转
+     *
+     * @param position
+     */
+    void scrubTo(int position) {
+        mScrubbing = true;
+        boolean scheduled = mPendingPosition != -1;
+        mPendingPosition = position;
+        if (scheduled) {
+            return;
+        }
+        long delay = mLastSeekTime + FRAME_WINDOW_MS - mScheduler.uptimeMillis();
+        if (delay <= 0) {
+            flush();
+        } else {
+            mScheduler.postDelayed(mFlushRunnable, delay);
+        }
+    }
+
+    /**
+     * 结束拖动，精确跳转到最终位置
+     *
+     * @param position
+     */
+    void endScrub(int position) {
+        cancel();
+        mTarget.seek(position, true);
+    }
+
+    /**
+     * 取消拖动，尚未执行的seek不再执行
+     */
+    void cancel() {
+        mScheduler.removeCallbacks(mFlushRunnable);
+        mPendingPosition = -1;
+        mScrubbing = false;
+    }
+
+    boolean isScrubbing() {
+        return mScrubbing;
+    }
+
+    private void flush() {
+        if (mPendingPosition == -1) {
+            return;
+        }
+        int position = mPendingPosition;
+        mPendingPosition = -1;
+        mLastSeekTime = mScheduler.uptimeMillis();
+        mTarget.seek(position, false);
+    }
+
+    private static final class MainThreadScheduler implements Scheduler {
+
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+
+        @Override
+        public void postDelayed(Runnable runnable, long delayMs) {
+            mHandler.postDelayed(runnable, delayMs);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable runnable) {
+            mHandler.removeCallbacks(runnable);
+        }
+
+    }
+
+}
@@ -1,20 +1,27 @@
 package com.kince.listvideo.player.player;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
-import android.util.Log;
 import android.view.TextureView;
 import android.view.ViewGroup;
 
+import com.kince.listvideo.player.cache.CacheAdmissionController;
+import com.kince.listvideo.player.cache.CacheEvictionPolicy;
+import com.kince.listvideo.player.cache.ChunkedDiskVideoPlayerCache;
+import com.kince.listvideo.player.cache.IVideoPlayerCache;
+import com.kince.listvideo.player.cache.ProxyVideoPlayerCache;
 import com.kince.listvideo.player.config.VideoPlayerConfig;
-import com.kince.listvideo.player.message.BackPressedMessage;
-import com.kince.listvideo.player.message.DurationMessage;
-import com.kince.listvideo.player.message.Message;
-import com.kince.listvideo.player.message.UIStateMessage;
+import com.kince.listvideo.player.message.IPlayStateObserver;
+import com.kince.listvideo.player.message.PlayStateDispatcher;
+import com.kince.listvideo.player.metrics.PlaybackMetrics;
+import com.kince.listvideo.player.metrics.PlaybackSession;
+import com.kince.listvideo.player.network.VideoHttpClient;
 import com.kince.listvideo.player.state.VideoPlayerState;
 import com.kince.listvideo.player.state.ScreenViewState;
-import com.kince.listvideo.player.utils.Utils;
+import com.kince.listvideo.player.utils.VideoPlayerLog;
 
-import java.util.Observable;
+import java.io.File;
 import java.util.Observer;
 
 /**
@@ -25,15 +32,17 @@ import java.util.Observer;
  * 通过此管理类达到视频播放控制与UI层的解耦，同时便于自定义播放器
  *
  */
-public final class VideoPlayerManager implements IVideoPlayer.PlayCallback {
+public final class VideoPlayerManager implements IVideoPlayer.PlayCallback, IVideoPlayer.PlaybackStageListener {
     private static final String TAG = "PlayerManager";
 
     private static volatile VideoPlayerManager sVideoPlayerManager;
 
     // 播放器实例
     private AbsBaseVideoPlayer mPlayer;
-    // 播放状态观察者
-    private PlayStateObservable mPlayStateObservable;
+    // 播放器实例池
+    private PlayerPool mPlayerPool;
+    // 播放状态消息分发
+    private PlayStateDispatcher mPlayStateDispatcher;
     // 当前播放地址
     private String mVideoUrl;
     private int mObserverHash = -1;
@@ -41,6 +50,25 @@ public final class VideoPlayerManager implements IVideoPlayer.PlayCallback {
     private int mScreenState = ScreenViewState.SCREEN_STATE_NORMAL;
     // 播放相关配置
     private VideoPlayerConfig mVideoPlayerConfig;
+    // 边播边存是否开启
+    private boolean mPlayingCacheEnable;
+    // 通过setPlayingCache设置的缓存，为null时使用配置中的缓存
+    private IVideoPlayerCache mPlayingCache;
+    // 缓存准入控制
+    private CacheAdmissionController mCacheAdmissionController;
+    // 播放状态只在主线程修改，播放器在其他线程的回调切换到主线程处理
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    // 起播耗时统计
+    private final PlaybackMetrics mPlaybackMetrics = new PlaybackMetrics();
+    // 合并拖动进度时的连续seek
+    private final SeekCoalescer mSeekCoalescer = new SeekCoalescer(new SeekCoalescer.Target() {
+        @Override
+        public void seek(int position, boolean exact) {
+            if (mPlayer != null) {
+                mPlayer.seekTo(position, exact);
+            }
+        }
+    });
 
     /**
      * 传入播放器配置
@@ -49,8 +77,17 @@ public final class VideoPlayerManager implements IVideoPlayer.PlayCallback {
      */
     private VideoPlayerManager(VideoPlayerConfig videoPlayerConfig) {
         mVideoPlayerConfig = videoPlayerConfig;
+        VideoPlayerLog.setEnabled(videoPlayerConfig.isLogEnable());
+        VideoHttpClient httpClient = VideoHttpClient.getInstance();
+        if (videoPlayerConfig.isConnectionPoolTuningEnable()) {
+            httpClient.configureConnectionPool();
+        }
+        httpClient.setProvider(videoPlayerConfig.getHttpDataSourceProvider());
+        httpClient.setTimeouts(videoPlayerConfig.getConnectTimeoutMs(), videoPlayerConfig.getReadTimeoutMs());
+        mPlayingCacheEnable = videoPlayerConfig.isCacheEnable();
+        mPlayerPool = new PlayerPool(videoPlayerConfig);
         createPlayer();
-        mPlayStateObservable = new PlayStateObservable();
+        mPlayStateDispatcher = new PlayStateDispatcher();
     }
 
     /**
@@ -81,8 +118,100 @@ public final class VideoPlayerManager implements IVideoPlayer.PlayCallback {
      * 创建播放器实例
      */
     private void createPlayer() {
-        mPlayer = mVideoPlayerConfig.getPlayerFactory().create();
+        mPlayer = mPlayerPool.acquire(null);
+        mPlayer.setPlayCallback(this);
+        mPlayer.setScreenState(mScreenState);
+    }
+
+    /**
+     * 如果实例池中存在已为该视频预加载的播放器，则切换为该播放器
+     *
+     * @param url
+     */
+    private void switchToPreparedPlayer(String url) {
+        AbsBaseVideoPlayer prepared = mPlayerPool.acquirePrepared(url);
+        if (prepared == null) {
+            return;
+        }
+        mPlayerPool.recycle(mPlayer);
+        mPlayer = prepared;
         mPlayer.setPlayCallback(this);
+        mPlayer.setScreenState(mScreenState);
+    }
+
+    /**
+     * 预加载视频，需通过{@link VideoPlayerConfig.Builder#playerPoolSize(int)}将实例池大小设置为大于1才能生效
+     *
+     * @param url 视频地址
+     * @return 是否开始了预加载
+     */
+    public boolean preload(String url) {
+        if (TextUtils.isEmpty(url) || url.equals(mVideoUrl)) {
+            return false;
+        }
+        return mPlayerPool.preload(url, getPlayUrl(url), getDataSourceCache(url), mCacheAdmissionController);
+    }
+
+    /**
+     * 获取播放器真正使用的播放地址，使用代理缓存时为缓存代理地址
+     *
+     * @param url
+     * @return
+     */
+    private String getPlayUrl(String url) {
+        IVideoPlayerCache cache = getCache();
+        if (cache == null || !isCacheAdmitted(url)) {
+            return url;
+        }
+        return cache.getPlayUrl(url);
+    }
+
+    /**
+     * 获取播放器播放指定视频时直接读写的缓存
+     *
+     * @param url
+     * @return 未开启缓存、使用代理缓存或视频不允许缓存时返回null
+     */
+    private IVideoPlayerCache getDataSourceCache(String url) {
+        IVideoPlayerCache cache = getCache();
+        if (cache == null || !cache.isWritable() || !isCacheAdmitted(url)) {
+            return null;
+        }
+        return cache;
+    }
+
+    private boolean isCacheAdmitted(String url) {
+        return mCacheAdmissionController == null || mCacheAdmissionController.isAdmitted(url);
+    }
+
+    /**
+     * 获取当前使用的视频缓存，播放器不支持直接读写缓存时返回代理缓存
+     *
+     * @return 未开启缓存时返回null
+     */
+    public IVideoPlayerCache getCache() {
+        if (!mPlayingCacheEnable) {
+            return null;
+        }
+        IVideoPlayerCache cache = mPlayingCache != null ? mPlayingCache : mVideoPlayerConfig.getCache();
+        if (cache != null && cache.isWritable()
+                && mPlayer != null && !mPlayer.isCacheDataSourceSupported()) {
+            //播放器只能通过地址播放，使用缓存代理
+            return mVideoPlayerConfig.getProxyCache();
+        }
+        return cache;
+    }
+
+    /**
+     * 删除因超出时长限制而被拒绝缓存的视频在播放过程中已缓存的部分
+     *
+     * @param url
+     */
+    private void removeRejectedCache(String url) {
+        IVideoPlayerCache cache = getCache();
+        if (url != null && cache != null && !isCacheAdmitted(url)) {
+            cache.remove(url);
+        }
     }
 
     public VideoPlayerConfig getConfig() {
@@ -106,14 +235,59 @@ public final class VideoPlayerManager implements IVideoPlayer.PlayCallback {
             ((ViewGroup) mPlayer.mTextureView.getParent()).removeView(mPlayer.mTextureView);
             setTextureView(null);
             if (mPlayer.mTextureView != null) {
-                Utils.log("remove TextureView:" + mPlayer.mTextureView.toString());
+                VideoPlayerLog.d(TAG, "remove TextureView:%s", mPlayer.mTextureView);
             }
         }
     }
 
+    /**
+     * 获取当前显示视频的TextureView
+     *
+     * @return
+     */
+    public TextureView getTextureView() {
+        return mPlayer.mTextureView;
+    }
+
+    /**
+     * 当前视频渲染首帧的次数，正常起播为1，切换全屏、小窗口后增加说明画面出现了中断
+     *
+     * @return
+     */
+    public int getFirstFrameCount() {
+        return mPlayer.getFirstFrameCount();
+    }
+
+    /**
+     * 当前视频在TextureView上更新的帧数
+     *
+     * @return
+     */
+    public int getRenderedFrameCount() {
+        return mPlayer.getRenderedFrameCount();
+    }
+
+    /**
+     * 当前视频解码后被丢弃的帧数
+     *
+     * @return 播放器不支持统计时返回0
+     */
+    public int getDroppedFrameCount() {
+        return mPlayer.getDroppedFrameCount();
+    }
+
+    /**
+     * 取出播放器之前使用过、已从容器中移除的TextureView用于复用
+     *
+     * @return 不存在时返回null
+     */
+    public TextureView obtainRecycledTextureView() {
+        return mPlayer.obtainRecycledTextureView();
+    }
+
     public void setTextureView(TextureView textureView) {
         if (textureView != null) {
-            Utils.log("set TextureView:" + textureView.toString());
+            VideoPlayerLog.d(TAG, "set TextureView:%s", textureView);
         }
         mPlayer.setTextureView(textureView);
     }
@@ -125,10 +299,8 @@ public final class VideoPlayerManager implements IVideoPlayer.PlayCallback {
      * @return
      */
     public boolean isCached(String videoUrl) {
-        if (mVideoPlayerConfig.isCacheEnable() && mVideoPlayerConfig.getCacheProxy().isCached(videoUrl)) {
-            return true;
-        }
-        return false;
+        IVideoPlayerCache cache = getCache();
+        return cache != null && cache.isCached(videoUrl);
     }
 
     /**
@@ -141,15 +313,31 @@ public final class VideoPlayerManager implements IVideoPlayer.PlayCallback {
     }
 
     public void start(String url, int observerHash) {
+        if (!url.equals(mVideoUrl)) {
+            removeRejectedCache(mVideoUrl);
+        }
+        //上一个视频保留的Surface不再需要，避免新视频显示旧画面
+        mPlayer.releaseSurface();
         bindPlayerView(url, observerHash);
+        switchToPreparedPlayer(url);
 
-        onPlayStateChanged(VideoPlayerState.STATE_LOADING);
-        Utils.log(String.format("start loading video, hash=%d, url=%s", mObserverHash, mVideoUrl));
-        String wrapperUrl = url;
-        if (mVideoPlayerConfig.isCacheEnable()) {
-            wrapperUrl = mVideoPlayerConfig.getCacheProxy().getProxyUrl(url);
-        }
-        mPlayer.start(wrapperUrl);
+        changeUIState(VideoPlayerState.STATE_LOADING, true);
+        VideoPlayerLog.d(TAG, "start loading video, hash=%d, url=%s", mObserverHash, mVideoUrl);
+        mPlaybackMetrics.beginSessionIfAbsent(url);
+        mPlayer.setCache(getDataSourceCache(url), mCacheAdmissionController);
+        mPlaybackMetrics.mark(PlaybackSession.STAGE_URL_RESOLVE_START);
+        String playUrl = getPlayUrl(url);
+        mPlaybackMetrics.mark(PlaybackSession.STAGE_URL_RESOLVED);
+        mPlayer.start(playUrl);
+    }
+
+    /**
+     * 获取起播耗时统计
+     *
+     * @return
+     */
+    public PlaybackMetrics getPlaybackMetrics() {
+        return mPlaybackMetrics;
     }
 
     void bindPlayerView(String url, int observerHash) {
@@ -158,44 +346,52 @@ public final class VideoPlayerManager implements IVideoPlayer.PlayCallback {
     }
 
     public void play() {
-        Utils.log(String.format("play video, hash=%d, url=%s", mObserverHash, mVideoUrl));
+        VideoPlayerLog.d(TAG, "play video, hash=%d, url=%s", mObserverHash, mVideoUrl);
         mPlayer.play();
         onPlayStateChanged(VideoPlayerState.STATE_PLAYING);
     }
 
     public void resume() {
         if (getState() == VideoPlayerState.STATE_PAUSE) {
-            Utils.log(String.format("resume video, hash=%d, url=%s", mObserverHash, mVideoUrl));
+            VideoPlayerLog.d(TAG, "resume video, hash=%d, url=%s", mObserverHash, mVideoUrl);
             play();
         }
     }
 
     public void pause() {
         if (getState() == VideoPlayerState.STATE_PLAYING) {
-            Utils.log(String.format("pause video, hash=%d, url=%s", mObserverHash, mVideoUrl));
+            VideoPlayerLog.d(TAG, "pause video, hash=%d, url=%s", mObserverHash, mVideoUrl);
             mPlayer.pause();
             onPlayStateChanged(VideoPlayerState.STATE_PAUSE);
         } else {
-            Utils.log(String.format("pause video for state: %d, hash=%d, url=%s", getState(), mObserverHash, mVideoUrl));
+            VideoPlayerLog.d(TAG, "pause video for state: %d, hash=%d, url=%s", getState(), mObserverHash, mVideoUrl);
         }
     }
 
     public void stop() {
-        Utils.log(String.format("stop video, hash=%d, url=%s", mObserverHash, mVideoUrl));
-        onPlayStateChanged(VideoPlayerState.STATE_NORMAL);
+        VideoPlayerLog.d(TAG, "stop video, hash=%d, url=%s", mObserverHash, mVideoUrl);
+        changeUIState(VideoPlayerState.STATE_NORMAL, true);
+        mPlaybackMetrics.cancelSession();
+        mSeekCoalescer.cancel();
         mPlayer.stop();
         removeTextureView();
+        mPlayer.releaseSurface();
+        removeRejectedCache(mVideoUrl);
         mObserverHash = -1;
         mVideoUrl = null;
-        mScreenState = ScreenViewState.SCREEN_STATE_NORMAL;
+        setScreenState(ScreenViewState.SCREEN_STATE_NORMAL);
     }
 
     public void release() {
-        Utils.log("release player");
+        VideoPlayerLog.d(TAG, "release player");
+        mSeekCoalescer.cancel();
         mPlayer.setPlayerState(VideoPlayerState.STATE_NORMAL);
         removeTextureView();
         mPlayer.release();
+        mPlayerPool.discard(mPlayer);
+        mPlayerPool.clear();
         mPlayer = null;
+        removeRejectedCache(mVideoUrl);
         mObserverHash = -1;
         mVideoUrl = null;
         mScreenState = ScreenViewState.SCREEN_STATE_NORMAL;
@@ -233,15 +429,39 @@ public final class VideoPlayerManager implements IVideoPlayer.PlayCallback {
      * @param maxSize 缓存目录的所有缓存文件的总的最大大小（单位：MB）。如果超过则删除最旧文件，如果还是不够，则不缓存。
      */
     public void setPlayingCache(boolean enable, String saveDir, int maxDuration, long maxSize){
-
+        if (mPlayingCache instanceof ProxyVideoPlayerCache) {
+            ((ProxyVideoPlayerCache) mPlayingCache).getCacheProxy().shutdown();
+        }
+        mPlayingCache = null;
+        mCacheAdmissionController = null;
+        mPlayingCacheEnable = enable;
+        if (!enable) {
+            return;
+        }
+        if (mVideoPlayerConfig.getContext() == null) {
+            throw new IllegalStateException("VideoPlayerConfig must be built with a Context to enable playing cache");
+        }
+        //按最旧优先淘汰，单个视频超过maxSize时不缓存
+        CacheEvictionPolicy policy = new CacheEvictionPolicy.Builder()
+                .maxBytes(maxSize * 1024 * 1024)
+                .frequencyWeight(0)
+                .build();
+        if (mVideoPlayerConfig.getCacheMode() == VideoPlayerConfig.CACHE_MODE_DATA_SOURCE
+                && mPlayer.isCacheDataSourceSupported()) {
+            mPlayingCache = new ChunkedDiskVideoPlayerCache(new File(saveDir),
+                    ChunkedDiskVideoPlayerCache.DEFAULT_CHUNK_SIZE, policy);
+        } else {
+            mPlayingCache = ProxyVideoPlayerCache.create(mVideoPlayerConfig.getContext(), new File(saveDir), policy);
+        }
+        mCacheAdmissionController = new CacheAdmissionController(maxDuration * 1000L);
     }
 
     /**
-     * 设置网络超时时间
+     * 设置网络超时时间，连接和读取使用相同的超时时间，对之后新建的请求生效
      * @param mstimeout 超时时间，单位：ms
      */
     public void setNetworkTimeout(int mstimeout){
-
+        VideoHttpClient.getInstance().setTimeouts(mstimeout, mstimeout);
     }
 
     /**
@@ -253,10 +473,19 @@ public final class VideoPlayerManager implements IVideoPlayer.PlayCallback {
         return mObserverHash != -1;
     }
 
+    /**
+     * 获取当前视频的屏幕状态
+     *
+     * @return {@link ScreenViewState}
+     */
+    public int getScreenState() {
+        return mScreenState;
+    }
+
     public boolean onBackPressed() {
         boolean consume = ScreenViewState.isNormal(mScreenState);
         if (consume == false) {
-            mPlayStateObservable.notify(new BackPressedMessage(mScreenState, mObserverHash, mVideoUrl));
+            mPlayStateDispatcher.dispatchBackPressed(mObserverHash, mVideoUrl, mScreenState);
             return true;
         }
         return false;
@@ -281,67 +510,176 @@ public final class VideoPlayerManager implements IVideoPlayer.PlayCallback {
     }
 
     public void seekTo(int position) {
+        mSeekCoalescer.cancel();
         if (isPlaying()) {
             onPlayStateChanged(VideoPlayerState.STATE_PLAYING_BUFFERING_START);
         }
         mPlayer.seekTo(position);
     }
 
+    /**
+     * 拖动进度条或手势快进后退过程中跳转，每帧最多跳转一次，优先跳转到附近的关键帧，
+     * 结束拖动时需调用{@link #endScrub(int)}
+     *
+     * @param position
+     */
+    public void scrubTo(int position) {
+        if (!mSeekCoalescer.isScrubbing() && isPlaying()) {
+            //整个拖动过程只通知一次缓冲
+            onPlayStateChanged(VideoPlayerState.STATE_PLAYING_BUFFERING_START);
+        }
+        mSeekCoalescer.scrubTo(position);
+    }
+
+    /**
+     * 结束拖动，精确跳转到最终位置
+     *
+     * @param position
+     */
+    public void endScrub(int position) {
+        if (isPlaying()) {
+            onPlayStateChanged(VideoPlayerState.STATE_PLAYING_BUFFERING_START);
+        }
+        mSeekCoalescer.endScrub(position);
+    }
+
     public int getState() {
-        return sVideoPlayerManager.mPlayer.getPlayerState();
+        return mPlayer.getPlayerState();
+    }
+
+    /**
+     * 播放器回调不在主线程时切换到主线程执行，切换前已被替换的播放器的回调直接丢弃
+     *
+     * @param task
+     * @return 是否已切换到主线程执行
+     */
+    private boolean postToMainThread(final Runnable task) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            return false;
+        }
+        final AbsBaseVideoPlayer player = mPlayer;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (player == mPlayer) {
+                    task.run();
+                }
+            }
+        });
+        return true;
     }
 
     @Override
-    public void onError(String error) {
-        Utils.log("error video, error= " + error == null ? "null" : error + ", url=" + mVideoUrl);
-        if (!TextUtils.isEmpty(error)) {
-            Log.d(TAG, error);
+    public void onError(final String error) {
+        if (postToMainThread(new Runnable() {
+            @Override
+            public void run() {
+                onError(error);
+            }
+        })) {
+            return;
         }
+        VideoPlayerLog.w(TAG, "error video, error=%s, url=%s", error, mVideoUrl);
+        mPlaybackMetrics.cancelSession();
         mPlayer.stop();
-        changeUIState(VideoPlayerState.STATE_ERROR);
+        changeUIState(VideoPlayerState.STATE_ERROR, false);
     }
 
     @Override
     public void onComplete() {
-        changeUIState(VideoPlayerState.STATE_AUTO_COMPLETE);
+        onPlayStateChanged(VideoPlayerState.STATE_AUTO_COMPLETE);
     }
 
     @Override
-    public void onPlayStateChanged(int state) {
-        changeUIState(state);
+    public void onPlayStateChanged(final int state) {
+        if (postToMainThread(new Runnable() {
+            @Override
+            public void run() {
+                onPlayStateChanged(state);
+            }
+        })) {
+            return;
+        }
+        changeUIState(state, false);
     }
 
     @Override
-    public void onDurationChanged(int duration) {
-        mPlayStateObservable.notify(new DurationMessage(mObserverHash, mVideoUrl, duration));
+    public void onPlaybackStage(int stage) {
+        //记录回调时的时间，不切换线程
+        mPlaybackMetrics.mark(stage);
     }
 
-    public void addObserver(Observer observer) {
-        mPlayStateObservable.addObserver(observer);
+    @Override
+    public void onDurationChanged(final int duration) {
+        if (postToMainThread(new Runnable() {
+            @Override
+            public void run() {
+                onDurationChanged(duration);
+            }
+        })) {
+            return;
+        }
+        if (mCacheAdmissionController != null && !mCacheAdmissionController.onDurationKnown(mVideoUrl, duration)) {
+            VideoPlayerLog.d(TAG, "video is longer than max cache duration, skip caching, url=%s", mVideoUrl);
+        }
+        mPlayStateDispatcher.dispatchDuration(mObserverHash, mVideoUrl, duration);
     }
 
-    public void removeObserver(Observer observer) {
-        mPlayStateObservable.deleteObserver(observer);
+    /**
+     * 注册播放状态观察者，只会收到发给该hash的消息，需在主线程调用
+     *
+     * @param hash     观察者hash，与{@link #start(String, int)}传入的observerHash对应
+     * @param observer
+     */
+    public void addObserver(int hash, IPlayStateObserver observer) {
+        mPlayStateDispatcher.addObserver(hash, observer);
     }
 
-    private void changeUIState(int state) {
-        mPlayer.setPlayerState(state);
-        mPlayStateObservable.notify(new UIStateMessage(mObserverHash, mVideoUrl, state));
+    public void removeObserver(int hash, IPlayStateObserver observer) {
+        mPlayStateDispatcher.removeObserver(hash, observer);
     }
 
-    public void setScreenState(int screenState) {
-        mScreenState = screenState;
+    /**
+     * 注册接收所有播放状态消息的观察者，需自行按hash和视频地址过滤
+     *
+     * @param observer
+     * @deprecated 使用{@link #addObserver(int, IPlayStateObserver)}，只接收发给自己的消息
+     */
+    @Deprecated
+    public void addObserver(Observer observer) {
+        mPlayStateDispatcher.addLegacyObserver(observer);
     }
 
-    class PlayStateObservable extends Observable {
+    /**
+     * @param observer
+     * @deprecated 使用{@link #removeObserver(int, IPlayStateObserver)}
+     */
+    @Deprecated
+    public void removeObserver(Observer observer) {
+        mPlayStateDispatcher.removeLegacyObserver(observer);
+    }
 
-        private void setObservableChanged() {
-            this.setChanged();
+    /**
+     * 修改播放状态并通知UI，只在主线程调用
+     *
+     * @param state
+     * @param force 状态未发生变化时是否仍通知UI，如开始播放另一个视频时
+     */
+    private void changeUIState(int state, boolean force) {
+        if (!mPlayer.transitionTo(state) && !force) {
+            if (mPlayer.getPlayerState() != state) {
+                VideoPlayerLog.d(TAG, "ignore illegal state transition: %d -> %d, url=%s",
+                        mPlayer.getPlayerState(), state, mVideoUrl);
+            }
+            return;
         }
+        mPlayStateDispatcher.dispatchUIState(mObserverHash, mVideoUrl, state);
+    }
 
-        public void notify(Message message) {
-            setObservableChanged();
-            notifyObservers(message);
+    public void setScreenState(int screenState) {
+        mScreenState = screenState;
+        if (mPlayer != null) {
+            mPlayer.setScreenState(screenState);
         }
     }
 
@@ -0,0 +1,186 @@
+package com.kince.listvideo.player.player;
+
+import android.graphics.SurfaceTexture;
+import android.view.Surface;
+import android.view.TextureView;
+
+/**
+ * Created by Kince
+ *
+ * 播放器渲染Surface的持有者
+ *
+ * 保存播放器输出所用的SurfaceTexture与Surface，TextureView在列表item、全屏、小窗口之间移动或更换时，
+ * 通过{@link TextureView#setSurfaceTexture(SurfaceTexture)}把同一个SurfaceTexture交给新的TextureView显示，
+ * 播放器的输出Surface始终不变，解码器不需要重建，也不会重新prepare
+ *
+ * SurfaceTexture在{@link #release()}之前一直保留，TextureView从窗口移除时不会被销毁
+ *
+ * 只在主线程使用
+ */
+public final class VideoSurfaceHolder implements TextureView.SurfaceTextureListener {
+
+    public interface Callback {
+
+        /**
+         * 创建了新的Surface，播放器需要将输出切换到该Surface
+         *
+         * @param surface
+         */
+        void onSurfaceCreated(Surface surface);
+
+        /**
+         * 已有的Surface交给了新的TextureView显示，播放器输出不变
+         *
+         * @param textureView
+         */
+        void onSurfaceMoved(TextureView textureView);
+
+        /**
+         * Surface即将被释放，播放器需停止向其输出
+         *
+         * @param surface
+         */
+        void onSurfaceReleasing(Surface surface);
+
+        /**
+         * 显示视频的TextureView尺寸发生改变，包括更换TextureView
+         *
+         * @param width
+         * @param height
+         */
+        void onSurfaceSizeChanged(int width, int height);
+
+        /**
+         * Surface上渲染了新的一帧，每帧调用
+         */
+        void onSurfaceUpdated();
+
+    }
+
+    private final Callback mCallback;
+
+    // 当前显示视频的TextureView
+    private TextureView mTextureView;
+    // 最近一个不再显示视频的TextureView，可以重新添加到其他容器中使用
+    private TextureView mRecycledTextureView;
+
+    private SurfaceTexture mSurfaceTexture;
+    private Surface mSurface;
+
+    public VideoSurfaceHolder(Callback callback) {
+        mCallback = callback;
+    }
+
+    /**
+     * 设置显示视频的TextureView
+     *
+     * @param textureView 为null时只解除关联，Surface仍然保留
+     */
+    public void setTextureView(TextureView textureView) {
+        if (textureView == mTextureView) {
+            return;
+        }
+        if (mTextureView != null) {
+            //不移除旧TextureView的监听，以便其销毁时保留SurfaceTexture
+            mRecycledTextureView = mTextureView;
+        }
+        mTextureView = textureView;
+        if (textureView == null) {
+            return;
+        }
+        if (textureView == mRecycledTextureView) {
+            mRecycledTextureView = null;
+        }
+        textureView.setSurfaceTextureListener(this);
+        if (textureView.isAvailable()) {
+            onSurfaceTextureAvailable(textureView.getSurfaceTexture(),
+                    textureView.getWidth(), textureView.getHeight());
+        }
+    }
+
+    public TextureView getTextureView() {
+        return mTextureView;
+    }
+
+    /**
+     * 取出可复用的TextureView，取出后不再由持有者保存
+     *
+     * @return 不存在或仍在其他容器中时返回null
+     */
+    public TextureView obtainRecycledTextureView() {
+        TextureView textureView = mRecycledTextureView;
+        if (textureView == null || textureView.getParent() != null) {
+            return null;
+        }
+        mRecycledTextureView = null;
+        return textureView;
+    }
+
+    /**
+     * @return 尚未创建或已释放时返回null
+     */
+    public Surface getSurface() {
+        return mSurface;
+    }
+
+    public SurfaceTexture getSurfaceTexture() {
+        return mSurfaceTexture;
+    }
+
+    /**
+     * 释放保留的Surface，下一个TextureView可用时会重新创建
+     */
+    public void release() {
+        if (mSurface != null) {
+            mCallback.onSurfaceReleasing(mSurface);
+            mSurface.release();
+            mSurface = null;
+        }
+        SurfaceTexture surfaceTexture = mSurfaceTexture;
+        mSurfaceTexture = null;
+        if (surfaceTexture != null
+                && (mTextureView == null || mTextureView.getSurfaceTexture() != surfaceTexture)) {
+            //仍在TextureView上显示时，由TextureView在销毁时释放
+            surfaceTexture.release();
+        }
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
+        if (mTextureView == null || mTextureView.getSurfaceTexture() != surface) {
+            //已解除关联的TextureView重新加入了窗口
+            return;
+        }
+        if (mSurfaceTexture == null) {
+            mSurfaceTexture = surface;
+            mSurface = new Surface(surface);
+            mCallback.onSurfaceCreated(mSurface);
+        } else if (surface != mSurfaceTexture) {
+            //TextureView新建的SurfaceTexture会被释放，改为显示保留的SurfaceTexture
+            mTextureView.setSurfaceTexture(mSurfaceTexture);
+            mCallback.onSurfaceMoved(mTextureView);
+        }
+        mCallback.onSurfaceSizeChanged(width, height);
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
+        if (mTextureView != null && mTextureView.getSurfaceTexture() == surface) {
+            mCallback.onSurfaceSizeChanged(width, height);
+        }
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
+        //保留的SurfaceTexture由持有者释放
+        return surface != mSurfaceTexture;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surface) {
+        if (surface == mSurfaceTexture) {
+            mCallback.onSurfaceUpdated();
+        }
+    }
+
+}
@@ -0,0 +1,292 @@
+package com.kince.listvideo.player.preload;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+
+import com.kince.listvideo.player.utils.Utils;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Created by Kince
+ *
+ * 后台预取任务调度器，按优先级通道执行任务：
+ * 1.{@link #LANE_ACTIVE} 当前播放位置的视频
+ * 2.{@link #LANE_NEXT} 紧邻的下一个视频
+ * 3.{@link #LANE_FURTHER} 更远的视频，只在WiFi等不计流量的网络下执行
+ *
+ * 同时执行的任务数按网络类型限制，WiFi下为构造时传入的最大并发数，移动网络下为1，无网络时不执行，
+ * 避免预取与正在播放的视频争抢带宽；已满时高优先级任务会中断正在执行的低优先级任务，被中断的任务重新排队
+ *
+ * 任务通过线程中断取消，执行中需检查{@link Thread#isInterrupted()}并尽快返回，且可以从中断处继续；
+ * 线程中断无法打断阻塞中的网络读取，这类任务需实现{@link Cancellable}，在取消时关闭连接
+ * 无网络时排队的任务在下一次{@link #submit(String, int, Runnable)}时重新调度
+ */
+public final class PrefetchScheduler {
+
+    public static final int LANE_ACTIVE = 0;
+    public static final int LANE_NEXT = 1;
+    public static final int LANE_FURTHER = 2;
+
+    // 空闲线程的保活时长
+    private static final long THREAD_KEEP_ALIVE_MS = 30 * 1000;
+
+    /**
+     * 可以从其他线程打断的任务，取消或被抢占时在调度器所在线程调用{@link #cancel()}
+     * 任务重新排队后会再次执行{@link #run()}，cancel()不应影响之后的执行
+     */
+    public interface Cancellable extends Runnable {
+
+        /**
+         * 打断正在进行的阻塞操作，例如断开网络连接，需尽快返回
+         */
+        void cancel();
+
+    }
+
+    private final Context mContext;
+    private final int mMaxConcurrency;
+    // 线程数不超过最大并发数，被抢占的任务结束前新任务在线程池中排队
+    private final ThreadPoolExecutor mExecutorService;
+
+    // 等待执行的任务，按通道和提交顺序排序
+    private final PriorityQueue<Task> mPendingTasks = new PriorityQueue<>();
+    // 正在执行的任务
+    private final Map<String, Task> mRunningTasks = new HashMap<>();
+    private long mSequence;
+
+    /**
+     * @param context        用于获取网络类型，为null时按计流量网络处理
+     * @param maxConcurrency WiFi下同时执行的任务数
+     */
+    public PrefetchScheduler(Context context, int maxConcurrency) {
+        mContext = context == null ? null : context.getApplicationContext();
+        mMaxConcurrency = maxConcurrency < 1 ? 1 : maxConcurrency;
+        mExecutorService = new ThreadPoolExecutor(mMaxConcurrency, mMaxConcurrency,
+                THREAD_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        mExecutorService.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 提交任务，相同key的任务已在排队或执行时只更新其通道
+     *
+     * @param key      任务标识，通常为视频地址
+     * @param lane     {@link #LANE_ACTIVE}、{@link #LANE_NEXT}或{@link #LANE_FURTHER}
+     * @param runnable
+     */
+    public synchronized void submit(String key, int lane, Runnable runnable) {
+        Task running = mRunningTasks.get(key);
+        if (running != null) {
+            running.lane = lane;
+            if (running.cancelled) {
+                //已取消但尚未结束，结束后重新排队
+                running.requeue = true;
+            }
+        } else {
+            Task pending = findPending(key);
+            if (pending == null) {
+                mPendingTasks.add(new Task(key, lane, mSequence++, runnable));
+            } else if (pending.lane != lane) {
+                mPendingTasks.remove(pending);
+                pending.lane = lane;
+                mPendingTasks.add(pending);
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * 取消key不在keys中的任务，包括正在执行的任务
+     *
+     * @param keys 需保留的任务
+     */
+    public synchronized void cancelOutside(Set<String> keys) {
+        Iterator<Task> pendingIterator = mPendingTasks.iterator();
+        while (pendingIterator.hasNext()) {
+            if (!keys.contains(pendingIterator.next().key)) {
+                pendingIterator.remove();
+            }
+        }
+        Iterator<Task> runningIterator = mRunningTasks.values().iterator();
+        while (runningIterator.hasNext()) {
+            Task task = runningIterator.next();
+            if (!keys.contains(task.key)) {
+                task.cancelled = true;
+                task.requeue = false;
+                interrupt(task);
+                if (!task.started) {
+                    runningIterator.remove();
+                }
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * 释放调度器，释放后不可再使用
+     */
+    public synchronized void shutdown() {
+        mPendingTasks.clear();
+        for (Task task : mRunningTasks.values()) {
+            if (task.started) {
+                interrupt(task);
+            }
+        }
+        mRunningTasks.clear();
+        mExecutorService.shutdownNow();
+    }
+
+    private void dispatch() {
+        if (mExecutorService.isShutdown()) {
+            return;
+        }
+        int networkType = Utils.getNetworkType(mContext);
+        boolean unmetered = networkType == ConnectivityManager.TYPE_WIFI
+                || networkType == ConnectivityManager.TYPE_ETHERNET;
+        int concurrency = networkType == Utils.NETWORK_TYPE_NONE ? 0 : unmetered ? mMaxConcurrency : 1;
+        while (!mPendingTasks.isEmpty()) {
+            Task next = mPendingTasks.peek();
+            if (next.lane == LANE_FURTHER && !unmetered) {
+                break;
+            }
+            if (mRunningTasks.size() < concurrency) {
+                start(mPendingTasks.poll());
+                continue;
+            }
+            //已满时中断优先级最低的任务，其线程结束后再次调度
+            Task victim = findPreemptible(next.lane);
+            if (victim != null) {
+                preempt(victim);
+                if (mRunningTasks.size() < concurrency) {
+                    continue;
+                }
+            }
+            break;
+        }
+    }
+
+    private void start(final Task task) {
+        mRunningTasks.put(task.key, task);
+        task.future = mExecutorService.submit(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (PrefetchScheduler.this) {
+                    if (task.cancelled) {
+                        return;
+                    }
+                    task.started = true;
+                }
+                try {
+                    task.runnable.run();
+                } finally {
+                    onTaskFinished(task);
+                }
+            }
+        });
+    }
+
+    private void preempt(Task task) {
+        task.cancelled = true;
+        interrupt(task);
+        if (task.started) {
+            task.requeue = true;
+        } else {
+            mRunningTasks.remove(task.key);
+            mPendingTasks.add(new Task(task));
+        }
+    }
+
+    /**
+     * 中断任务所在线程，已开始执行的{@link Cancellable}任务同时调用其cancel()
+     *
+     * @param task
+     */
+    private void interrupt(Task task) {
+        task.future.cancel(true);
+        if (task.started && task.runnable instanceof Cancellable) {
+            ((Cancellable) task.runnable).cancel();
+        }
+    }
+
+    private synchronized void onTaskFinished(Task task) {
+        if (mRunningTasks.get(task.key) == task) {
+            mRunningTasks.remove(task.key);
+        }
+        if (task.requeue && findPending(task.key) == null) {
+            mPendingTasks.add(new Task(task));
+        }
+        dispatch();
+    }
+
+    /**
+     * @param lane 需要执行的任务所在通道
+     * @return 通道低于lane的执行中任务里优先级最低的一个，不存在时返回null
+     */
+    private Task findPreemptible(int lane) {
+        Task victim = null;
+        for (Task task : mRunningTasks.values()) {
+            if (task.cancelled || task.lane <= lane) {
+                continue;
+            }
+            if (victim == null || task.compareTo(victim) > 0) {
+                victim = task;
+            }
+        }
+        return victim;
+    }
+
+    private Task findPending(String key) {
+        for (Task task : mPendingTasks) {
+            if (task.key.equals(key)) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private static final class Task implements Comparable<Task> {
+
+        final String key;
+        final long sequence;
+        final Runnable runnable;
+        // 只在持有调度器锁时读写
+        int lane;
+        Future<?> future;
+        boolean started;
+        boolean cancelled;
+        // 被高优先级任务中断，结束后重新排队
+        boolean requeue;
+
+        Task(String key, int lane, long sequence, Runnable runnable) {
+            this.key = key;
+            this.lane = lane;
+            this.sequence = sequence;
+            this.runnable = runnable;
+        }
+
+        /**
+         * 重新排队时使用，保留原来的通道和提交顺序
+         */
+        Task(Task task) {
+            this(task.key, task.lane, task.sequence, task.runnable);
+        }
+
+        @Override
+        public int compareTo(Task another) {
+            if (lane != another.lane) {
+                return lane < another.lane ? -1 : 1;
+            }
+            return sequence < another.sequence ? -1 : sequence == another.sequence ? 0 : 1;
+        }
+
+    }
+
+}
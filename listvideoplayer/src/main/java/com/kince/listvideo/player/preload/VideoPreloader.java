@@ -0,0 +1,290 @@
+package com.kince.listvideo.player.preload;
+
+import android.text.TextUtils;
+
+import com.kince.listvideo.player.cache.IVideoPlayerCache;
+import com.kince.listvideo.player.network.VideoHttpClient;
+import com.kince.listvideo.player.player.VideoPlayerManager;
+import com.kince.listvideo.player.utils.VideoPlayerLog;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Created by Kince
+ *
+ * 列表视频预加载器
+ *
+ * 根据列表当前的位置和滑动方向，对即将播放的视频进行预加载：
+ * 1.紧邻的下一个视频交由{@link VideoPlayerManager#preload(String)}提前prepare（需开启播放器实例池）
+ * 2.其余视频读取前{@link #mPreloadBytes}个字节写入{@link IVideoPlayerCache}，预热缓存
+ *   由{@link PrefetchScheduler}按当前位置、下一个、更远的优先级调度，离开预加载范围的请求会被取消
+ * 3.未开启缓存时只与视频所在域名预先建立连接，见{@link VideoHttpClient#preconnect(String)}
+ *
+ * 所有方法均需在主线程调用
+ */
+public final class VideoPreloader {
+
+    // 默认预加载的视频个数
+    private static final int DEFAULT_PRELOAD_COUNT = 2;
+    // 默认每个视频预加载的字节数
+    private static final long DEFAULT_PRELOAD_BYTES = 512 * 1024;
+    // 默认同时进行的预加载请求数
+    private static final int DEFAULT_MAX_CONCURRENT_FETCHES = 2;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    // 最多记录的已预热视频个数
+    private static final int MAX_WARMED_URLS = 64;
+
+    /**
+     * 提供列表中各位置的视频地址，通常由Adapter实现
+     */
+    public interface UrlProvider {
+
+        int getCount();
+
+        String getUrl(int position);
+
+    }
+
+    private final UrlProvider mUrlProvider;
+    private final int mPreloadCount;
+    private final long mPreloadBytes;
+    private final PrefetchScheduler mScheduler;
+
+    // 最近完成缓存预热的视频，超出上限时移除最久未访问的记录
+    private final Set<String> mWarmedUrls = Collections.newSetFromMap(
+            new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_WARMED_URLS;
+                }
+            });
+
+    public VideoPreloader(UrlProvider urlProvider) {
+        this(urlProvider, DEFAULT_PRELOAD_COUNT, DEFAULT_PRELOAD_BYTES, DEFAULT_MAX_CONCURRENT_FETCHES);
+    }
+
+    /**
+     * @param urlProvider         视频地址提供者
+     * @param preloadCount        滑动方向上预加载的视频个数
+     * @param preloadBytes        每个视频预热缓存的字节数
+     * @param maxConcurrentFetches WiFi下同时进行的缓存预热请求数，移动网络下为1
+     */
+    public VideoPreloader(UrlProvider urlProvider, int preloadCount, long preloadBytes, int maxConcurrentFetches) {
+        mUrlProvider = urlProvider;
+        mPreloadCount = preloadCount;
+        mPreloadBytes = preloadBytes;
+        mScheduler = new PrefetchScheduler(VideoPlayerManager.getInstance().getConfig().getContext(),
+                maxConcurrentFetches);
+    }
+
+    /**
+     * 列表当前播放位置发生改变时调用
+     *
+     * @param position 当前位置
+     * @param forward  是否向列表尾部滑动
+     */
+    public void onPositionChanged(int position, boolean forward) {
+        int step = forward ? 1 : -1;
+        int count = mUrlProvider.getCount();
+        Set<String> window = new HashSet<>();
+        if (position >= 0 && position < count) {
+            String url = mUrlProvider.getUrl(position);
+            if (!TextUtils.isEmpty(url)) {
+                window.add(url);
+                //正在播放的视频由播放器自己加载
+                if (!url.equals(VideoPlayerManager.getInstance().getVideoUrl())) {
+                    warmCache(url, PrefetchScheduler.LANE_ACTIVE);
+                }
+            }
+        }
+        for (int i = 1; i <= mPreloadCount; i++) {
+            int target = position + step * i;
+            if (target < 0 || target >= count) {
+                break;
+            }
+            String url = mUrlProvider.getUrl(target);
+            if (TextUtils.isEmpty(url)) {
+                continue;
+            }
+            window.add(url);
+            if (i == 1 && VideoPlayerManager.getInstance().preload(url)) {
+                continue;
+            }
+            warmCache(url, i == 1 ? PrefetchScheduler.LANE_NEXT : PrefetchScheduler.LANE_FURTHER);
+        }
+        mScheduler.cancelOutside(window);
+    }
+
+    /**
+     * 取消所有进行中的预加载
+     */
+    public void cancelAll() {
+        mScheduler.cancelOutside(new HashSet<String>());
+    }
+
+    /**
+     * 释放预加载器，释放后不可再使用
+     */
+    public void release() {
+        mScheduler.shutdown();
+        synchronized (this) {
+            mWarmedUrls.clear();
+        }
+    }
+
+    private void warmCache(final String url, int lane) {
+        final IVideoPlayerCache cache = VideoPlayerManager.getInstance().getCache();
+        if (cache == null) {
+            VideoHttpClient.getInstance().preconnect(url);
+            return;
+        }
+        if (cache.isCached(url)) {
+            return;
+        }
+        synchronized (this) {
+            if (mWarmedUrls.contains(url)) {
+                return;
+            }
+        }
+        mScheduler.submit(url, lane, new FetchTask(cache, url));
+    }
+
+    /**
+     * 缓存预热任务，取消时断开正在读取的连接
+     */
+    private final class FetchTask implements PrefetchScheduler.Cancellable {
+
+        private final IVideoPlayerCache mCache;
+        private final String mUrl;
+        // 正在读取的连接
+        private volatile HttpURLConnection mConnection;
+
+        FetchTask(IVideoPlayerCache cache, String url) {
+            mCache = cache;
+            mUrl = url;
+        }
+
+        @Override
+        public void run() {
+            if (fetch(this)) {
+                synchronized (VideoPreloader.this) {
+                    mWarmedUrls.add(mUrl);
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            HttpURLConnection connection = mConnection;
+            if (connection != null) {
+                try {
+                    //关闭socket，阻塞中的读取会抛出异常
+                    connection.disconnect();
+                } catch (Exception ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取视频前{@link #mPreloadBytes}个字节
+     * 不支持直接写入的缓存（如基于代理实现的缓存）通过代理地址读取，由代理写入缓存；否则直接请求视频地址并写入缓存
+     *
+     * @param task 预热任务
+     * @return 是否读取完成
+     */
+    private boolean fetch(FetchTask task) {
+        IVideoPlayerCache cache = task.mCache;
+        String url = task.mUrl;
+        if (cache.isCached(url)) {
+            //已完整缓存时代理返回本地文件地址，无需也无法再请求
+            return true;
+        }
+        boolean throughProxy = !cache.isWritable();
+        String playUrl = throughProxy ? cache.getPlayUrl(url) : url;
+        long position = throughProxy ? 0 : cache.getCachedLength(url, 0);
+        if (position >= mPreloadBytes) {
+            return true;
+        }
+        HttpURLConnection connection = null;
+        InputStream inputStream = null;
+        try {
+            connection = VideoHttpClient.getInstance().openConnection(playUrl);
+            task.mConnection = connection;
+            if (Thread.currentThread().isInterrupted()) {
+                //在连接记录之前已被取消
+                return false;
+            }
+            if (!throughProxy) {
+                connection.setRequestProperty("Range", "bytes=" + position + "-" + (mPreloadBytes - 1));
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+                    //服务器不支持Range请求，从头开始读取
+                    position = 0;
+                }
+            }
+            //通过代理从头请求时Content-Length即为视频总长度
+            long contentLength = getContentLength(connection);
+            if (contentLength != IVideoPlayerCache.LENGTH_UNKNOWN) {
+                cache.setContentLength(url, contentLength);
+            }
+            inputStream = connection.getInputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while (position < mPreloadBytes && (read = inputStream.read(buffer)) != -1) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                if (!throughProxy) {
+                    cache.write(url, position, buffer, 0, read);
+                }
+                position += read;
+            }
+            return true;
+        } catch (Exception e) {
+            VideoPlayerLog.d(VideoPlayerLog.TAG, "preload failed, url=%s, error=%s", url, e);
+            return false;
+        } finally {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (Exception ignored) {
+                }
+            }
+            if (connection != null) {
+                task.mConnection = null;
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * 从响应头中解析视频总长度
+     *
+     * @param connection
+     * @return 未知时返回{@link IVideoPlayerCache#LENGTH_UNKNOWN}
+     */
+    private static long getContentLength(HttpURLConnection connection) {
+        try {
+            String contentRange = connection.getHeaderField("Content-Range");
+            if (contentRange != null) {
+                String total = contentRange.substring(contentRange.lastIndexOf('/') + 1).trim();
+                return "*".equals(total) ? IVideoPlayerCache.LENGTH_UNKNOWN : Long.parseLong(total);
+            }
+            String contentLength = connection.getHeaderField("Content-Length");
+            if (contentLength != null) {
+                return Long.parseLong(contentLength.trim());
+            }
+        } catch (NumberFormatException e) {
+            VideoPlayerLog.e(VideoPlayerLog.TAG, "invalid content length, url=" + connection.getURL(), e);
+        }
+        return IVideoPlayerCache.LENGTH_UNKNOWN;
+    }
+
+}
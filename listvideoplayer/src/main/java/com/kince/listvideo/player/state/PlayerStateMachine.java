@@ -0,0 +1,91 @@
+package com.kince.listvideo.player.state;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by Kince
+ *
+ * 播放器状态机，状态取值见{@link VideoPlayerState}
+ *
+ * 状态只能按{@link #isValidTransition(int, int)}定义的规则迁移，迁移通过CAS完成，
+ * 任意线程读取到的都是完整的状态；非法迁移与重复迁移会被拒绝，调用方据此跳过多余的UI更新
+ */
+public final class PlayerStateMachine {
+
+    private static final int STATE_COUNT = VideoPlayerState.STATE_ERROR + 1;
+
+    // 合法的状态迁移，TRANSITIONS[from][to]
+    private static final boolean[][] TRANSITIONS = new boolean[STATE_COUNT][STATE_COUNT];
+
+    static {
+        for (int from = 0; from < STATE_COUNT; from++) {
+            //任意状态都可以重新加载、停止或出错
+            allow(from, VideoPlayerState.STATE_LOADING);
+            allow(from, VideoPlayerState.STATE_NORMAL);
+            allow(from, VideoPlayerState.STATE_ERROR);
+        }
+        allow(VideoPlayerState.STATE_LOADING, VideoPlayerState.STATE_PLAYING);
+        allow(VideoPlayerState.STATE_LOADING, VideoPlayerState.STATE_PAUSE);
+
+        allow(VideoPlayerState.STATE_PLAYING, VideoPlayerState.STATE_PAUSE);
+        allow(VideoPlayerState.STATE_PLAYING, VideoPlayerState.STATE_PLAYING_BUFFERING_START);
+        allow(VideoPlayerState.STATE_PLAYING, VideoPlayerState.STATE_AUTO_COMPLETE);
+
+        allow(VideoPlayerState.STATE_PLAYING_BUFFERING_START, VideoPlayerState.STATE_PLAYING);
+        allow(VideoPlayerState.STATE_PLAYING_BUFFERING_START, VideoPlayerState.STATE_PAUSE);
+        allow(VideoPlayerState.STATE_PLAYING_BUFFERING_START, VideoPlayerState.STATE_AUTO_COMPLETE);
+
+        allow(VideoPlayerState.STATE_PAUSE, VideoPlayerState.STATE_PLAYING);
+        allow(VideoPlayerState.STATE_PAUSE, VideoPlayerState.STATE_PLAYING_BUFFERING_START);
+        allow(VideoPlayerState.STATE_PAUSE, VideoPlayerState.STATE_AUTO_COMPLETE);
+
+        //播放完成后重播：seekTo(0)之后直接play，可能先进入缓冲
+        allow(VideoPlayerState.STATE_AUTO_COMPLETE, VideoPlayerState.STATE_PLAYING);
+        allow(VideoPlayerState.STATE_AUTO_COMPLETE, VideoPlayerState.STATE_PLAYING_BUFFERING_START);
+
+        //状态不变不算迁移
+        for (int state = 0; state < STATE_COUNT; state++) {
+            TRANSITIONS[state][state] = false;
+        }
+    }
+
+    private static void allow(int from, int to) {
+        TRANSITIONS[from][to] = true;
+    }
+
+    private final AtomicInteger mState = new AtomicInteger(VideoPlayerState.STATE_NORMAL);
+
+    /**
+     * 状态from是否可以迁移到状态to
+     *
+     * @param from
+     * @param to
+     * @return
+     */
+    public static boolean isValidTransition(int from, int to) {
+        return from >= 0 && from < STATE_COUNT && to >= 0 && to < STATE_COUNT && TRANSITIONS[from][to];
+    }
+
+    public int get() {
+        return mState.get();
+    }
+
+    /**
+     * 迁移到指定状态
+     *
+     * @param to
+     * @return 是否迁移成功，当前状态不允许迁移到该状态或状态未发生变化时返回false
+     */
+    public boolean transitionTo(int to) {
+        while (true) {
+            int from = mState.get();
+            if (!isValidTransition(from, to)) {
+                return false;
+            }
+            if (mState.compareAndSet(from, to)) {
+                return true;
+            }
+        }
+    }
+
+}
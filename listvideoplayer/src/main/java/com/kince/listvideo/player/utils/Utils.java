@@ -8,7 +8,6 @@ import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.Build;
 import android.util.DisplayMetrics;
-import android.util.Log;
 import android.view.Display;
 import android.view.View;
 import android.view.WindowManager;
@@ -19,6 +18,9 @@ import android.view.WindowManager;
 public class Utils {
     private static final String UNKNOWN_SIZE = "00:00";
 
+    public static final int NETWORK_TYPE_NONE = -1;
+    public static final int NETWORK_TYPE_UNKNOWN = -2;
+
     /**
      * 转换视频时长(s)为时分秒的展示格式
      * @param miliseconds   视频总时长，单位毫秒
@@ -68,12 +70,17 @@ public class Utils {
         return view.getVisibility() == View.GONE || view.getVisibility() == View.INVISIBLE;
     }
 
+    /**
+     * 参数需要拼接时请使用{@link VideoPlayerLog}的格式化方法，避免关闭日志时仍拼接字符串
+     *
+     * @param message
+     */
     public static void log(String message) {
-        Log.d("__VideoPlayer__", message);
+        VideoPlayerLog.d(VideoPlayerLog.TAG, message);
     }
 
     public static void logTouch(String message) {
-        Log.d("__GestureTouch__", message);
+        VideoPlayerLog.d("__GestureTouch__", message);
     }
 
     /**
@@ -157,4 +164,22 @@ public class Utils {
         }
     }
 
+    /**
+     * 获取当前连接的网络类型，需添加权限同{@link #isConnected(Context)}
+     *
+     * @return {@link ConnectivityManager#TYPE_WIFI}等，无网络时返回{@link #NETWORK_TYPE_NONE}，
+     * 无法获取时返回{@link #NETWORK_TYPE_UNKNOWN}
+     */
+    public static int getNetworkType(Context context) {
+        if (context == null) {
+            return NETWORK_TYPE_UNKNOWN;
+        }
+        try {
+            NetworkInfo net = ((ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE)).getActiveNetworkInfo();
+            return net != null && net.isConnected() ? net.getType() : NETWORK_TYPE_NONE;
+        } catch(Exception e) {
+            return NETWORK_TYPE_UNKNOWN;
+        }
+    }
+
 }
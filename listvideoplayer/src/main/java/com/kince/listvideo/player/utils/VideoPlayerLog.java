@@ -0,0 +1,141 @@
+package com.kince.listvideo.player.utils;
+
+import android.util.Log;
+
+/**
+ * Created by Kince
+ *
+ * 分级日志，由{@link com.kince.listvideo.player.config.VideoPlayerConfig.Builder#enableLog(boolean)}控制开关
+ *
+ * 带格式参数的方法先判断级别再格式化，关闭日志时不会执行String.format；
+ * 固定参数个数并提供int重载，调用时不会创建可变参数数组或装箱
+ * 调用处参数本身需要拼接或计算时，先通过{@link #isLoggable(int)}判断
+ */
+public final class VideoPlayerLog {
+
+    public static final String TAG = "__VideoPlayer__";
+
+    /**
+     * 不输出任何日志
+     */
+    public static final int NONE = Log.ASSERT + 1;
+
+    /**
+     * 逐帧回调（如onSurfaceTextureUpdated）的日志开关，为false时相关代码在编译期被移除，
+     * 仅在调试渲染问题时修改
+     */
+    public static final boolean FRAME_LOG = false;
+
+    /**
+     * 开启{@link #FRAME_LOG}时，逐帧日志每隔多少帧输出一次
+     */
+    public static final int FRAME_LOG_SAMPLE_INTERVAL = 60;
+
+    private static volatile int sLevel = NONE;
+
+    private VideoPlayerLog() {
+    }
+
+    /**
+     * @param enable true时输出{@link Log#DEBUG}及以上级别的日志
+     */
+    public static void setEnabled(boolean enable) {
+        sLevel = enable ? Log.DEBUG : NONE;
+    }
+
+    /**
+     * @param level {@link Log#VERBOSE}~{@link Log#ASSERT}，或{@link #NONE}
+     */
+    public static void setLevel(int level) {
+        sLevel = level;
+    }
+
+    public static boolean isLoggable(int level) {
+        return level >= sLevel;
+    }
+
+    public static void v(String tag, String message) {
+        if (isLoggable(Log.VERBOSE)) {
+            Log.v(tag, message);
+        }
+    }
+
+    public static void d(String tag, String message) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, message);
+        }
+    }
+
+    public static void d(String tag, String format, Object arg) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, String.format(format, arg));
+        }
+    }
+
+    public static void d(String tag, String format, int arg) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, String.format(format, arg));
+        }
+    }
+
+    public static void d(String tag, String format, Object arg1, Object arg2) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, String.format(format, arg1, arg2));
+        }
+    }
+
+    public static void d(String tag, String format, int arg1, int arg2) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, String.format(format, arg1, arg2));
+        }
+    }
+
+    public static void d(String tag, String format, float arg1, Object arg2) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, String.format(format, arg1, arg2));
+        }
+    }
+
+    public static void d(String tag, String format, int arg1, Object arg2) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, String.format(format, arg1, arg2));
+        }
+    }
+
+    public static void d(String tag, String format, int arg1, int arg2, Object arg3) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, String.format(format, arg1, arg2, arg3));
+        }
+    }
+
+    public static void d(String tag, String format, int arg1, int arg2, long arg3) {
+        if (isLoggable(Log.DEBUG)) {
+            Log.d(tag, String.format(format, arg1, arg2, arg3));
+        }
+    }
+
+    public static void i(String tag, String message) {
+        if (isLoggable(Log.INFO)) {
+            Log.i(tag, message);
+        }
+    }
+
+    public static void w(String tag, String message) {
+        if (isLoggable(Log.WARN)) {
+            Log.w(tag, message);
+        }
+    }
+
+    public static void w(String tag, String format, Object arg1, Object arg2) {
+        if (isLoggable(Log.WARN)) {
+            Log.w(tag, String.format(format, arg1, arg2));
+        }
+    }
+
+    public static void e(String tag, String message, Throwable throwable) {
+        if (isLoggable(Log.ERROR)) {
+            Log.e(tag, message, throwable);
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.kince.listvideo.player.utils;
+
+/**
+ * Created by Kince
+ *
+ * 将播放时间格式化到复用的char数组中，格式与{@link Utils#formatVideoTimeLength(long)}一致，
+ * 用于周期性刷新的播放进度，刷新过程中不产生对象分配
+ *
+ * 非线程安全，每个视图持有一个实例
+ */
+public final class VideoTimeFormatter {
+
+    // 足以容纳任意int秒数转换后的时:分:秒
+    private static final int BUFFER_SIZE = 16;
+
+    private final char[] mBuffer = new char[BUFFER_SIZE];
+    private int mLength;
+    // 上一次格式化的秒数
+    private long mLastSeconds = -1;
+
+    /**
+     * 格式化播放时间，秒数与上一次相同时不做处理
+     *
+     * @param milliseconds 播放时间，单位毫秒
+     * @return 格式化结果是否发生了变化
+     */
+    public boolean format(long milliseconds) {
+        long seconds = milliseconds / 1000;
+        if (seconds == mLastSeconds) {
+            return false;
+        }
+        mLastSeconds = seconds;
+        mLength = format(milliseconds, mBuffer);
+        return true;
+    }
+
+    /**
+     * 清除上一次的格式化结果，下一次{@link #format(long)}必定返回true
+     */
+    public void reset() {
+        mLastSeconds = -1;
+    }
+
+    public char[] getBuffer() {
+        return mBuffer;
+    }
+
+    public int getLength() {
+        return mLength;
+    }
+
+    /**
+     * 将播放时间格式化到buffer中
+     *
+     * @param milliseconds 播放时间，单位毫秒
+     * @param buffer       长度不小于16
+     * @return 写入的字符数
+     */
+    public static int format(long milliseconds, char[] buffer) {
+        int seconds = (int) Math.max(0, milliseconds / 1000);
+        int length = 0;
+        if (seconds >= 60 * 60) {
+            length = appendNumber(buffer, length, seconds / 3600);
+            buffer[length++] = ':';
+        }
+        //小于1秒时与Utils.formatVideoTimeLength一致，显示00:00
+        length = appendNumber(buffer, length, seconds % 3600 / 60);
+        buffer[length++] = ':';
+        length = appendNumber(buffer, length, seconds % 60);
+        return length;
+    }
+
+    /**
+     * 写入非负整数，不足两位时补0
+     */
+    private static int appendNumber(char[] buffer, int offset, int value) {
+        if (value < 10) {
+            buffer[offset++] = '0';
+            buffer[offset++] = (char) ('0' + value);
+            return offset;
+        }
+        int digits = 0;
+        for (int v = value; v > 0; v /= 10) {
+            digits++;
+        }
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+
+}
@@ -10,6 +10,7 @@ import android.media.AudioManager;
 import android.os.Build;
 import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.Log;
 import android.view.Gravity;
 import android.view.MotionEvent;
 import android.view.TextureView;
@@ -29,8 +30,10 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.kince.listvideo.player.R;
+import com.kince.listvideo.player.autoplay.FlingPlaybackGate;
 import com.kince.listvideo.player.message.BackPressedMessage;
 import com.kince.listvideo.player.message.DurationMessage;
+import com.kince.listvideo.player.message.IPlayStateObserver;
 import com.kince.listvideo.player.message.Message;
 import com.kince.listvideo.player.message.UIStateMessage;
 import com.kince.listvideo.player.player.VideoPlayerManager;
@@ -38,15 +41,11 @@ import com.kince.listvideo.player.state.GestureTouchState;
 import com.kince.listvideo.player.state.VideoPlayerState;
 import com.kince.listvideo.player.state.ScreenViewState;
 import com.kince.listvideo.player.utils.Utils;
+import com.kince.listvideo.player.utils.VideoPlayerLog;
+import com.kince.listvideo.player.utils.VideoTimeFormatter;
 
-import java.util.Observable;
-import java.util.Observer;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Created by Kince
@@ -62,7 +61,7 @@ public class AbsVideoPlayerView extends RelativeLayout implements
         View.OnTouchListener,
         SeekBar.OnSeekBarChangeListener,
         AudioManager.OnAudioFocusChangeListener,
-        Observer {
+        IPlayStateObserver {
     /**
      * 视频显示媒介容器(TextureView的父容器)
      */
@@ -141,6 +140,10 @@ public class AbsVideoPlayerView extends RelativeLayout implements
      * 当前Observer（即：VideoPlayerView本身）对象的hashcode
      */
     private int mViewHash;
+    /**
+     * 是否已按{@link #mViewHash}注册为播放状态观察者
+     */
+    private boolean mObserverRegistered;
     /**
      * 视频标题
      */
@@ -177,6 +180,10 @@ public class AbsVideoPlayerView extends RelativeLayout implements
      * 小窗口的高度
      */
     private int mSmallWindowHeight;
+    /**
+     * 复用的小窗口View，避免每次进入小窗口都新建
+     */
+    private AbsVideoPlayerView mSmallWindowView;
     /**
      * 正常状态下的标题是否显示
      */
@@ -185,6 +192,10 @@ public class AbsVideoPlayerView extends RelativeLayout implements
      * 是否自动播放
      */
     private boolean isAutoPlay = false;
+    /**
+     * 自动播放尚未开始，等待attach到窗口或列表停止滑动
+     */
+    private boolean mAutoPlayPending = false;
 
     public AbsVideoPlayerView(Context context) {
         super(context);
@@ -274,6 +285,7 @@ public class AbsVideoPlayerView extends RelativeLayout implements
     public void bind(String videoUrl, CharSequence title, boolean showNormalStateTitleView, boolean autoPlay) {
         mShowNormalStateTitleView = showNormalStateTitleView;
         isAutoPlay = autoPlay;
+        mAutoPlayPending = autoPlay;
         mVideoTitle = title;
         mVideoUrl = videoUrl;
         if (!TextUtils.isEmpty(mVideoTitle)) {
@@ -281,7 +293,7 @@ public class AbsVideoPlayerView extends RelativeLayout implements
         }
         resetViewState();
         if (autoPlay) {
-            startPlayVideo();
+            performAutoPlay();
         }
     }
 
@@ -360,13 +372,57 @@ public class AbsVideoPlayerView extends RelativeLayout implements
         }
     }
 
+    /**
+     * 获取绑定的视频地址
+     *
+     * @return
+     */
+    public String getVideoUrl() {
+        return mVideoUrl;
+    }
+
+    /**
+     * 播放器当前是否由该View显示视频
+     *
+     * @return
+     */
+    public boolean isCurrentVideoView() {
+        return VideoPlayerManager.getInstance().isViewPlaying(mViewHash);
+    }
+
+    /**
+     * 自动播放是否尚未开始
+     *
+     * @return
+     */
+    public boolean isAutoPlayPending() {
+        return mAutoPlayPending;
+    }
+
+    /**
+     * 开始自动播放，未attach到窗口时在attach后开始，所在列表滑动中时由{@link FlingPlaybackGate}在停止滑动后开始
+     */
+    public void performAutoPlay() {
+        if (!mAutoPlayPending || getWindowToken() == null) {
+            return;
+        }
+        FlingPlaybackGate gate = FlingPlaybackGate.from(this);
+        if (gate != null && gate.deferAutoPlay(this)) {
+            return;
+        }
+        mAutoPlayPending = false;
+        startPlayVideo();
+    }
+
     /**
      * 开始播放视频
      */
     public void startPlayVideo() {
+        VideoPlayerManager.getInstance().getPlaybackMetrics().beginSession(mVideoUrl);
         if (!Utils.isConnected(getContext())) {
             if (!VideoPlayerManager.getInstance().isCached(mVideoUrl)) {
                 Toast.makeText(getContext(), R.string.vp_no_network, Toast.LENGTH_SHORT).show();
+                VideoPlayerManager.getInstance().getPlaybackMetrics().cancelSession();
                 return;
             }
         }
@@ -375,13 +431,42 @@ public class AbsVideoPlayerView extends RelativeLayout implements
         //先移除播放器关联的TextureView
         VideoPlayerManager.getInstance().removeTextureView();
 
-        TextureView textureView = createTextureView();
+        TextureView textureView = obtainTextureView();
         mVideoTextureViewContainer.addView(textureView);
         //准备开始播放
         VideoPlayerManager.getInstance().start(mVideoUrl, mViewHash);
         VideoPlayerManager.getInstance().setTextureView(textureView);
     }
 
+    /**
+     * 获取用于显示视频的TextureView，优先复用播放器之前使用过的TextureView
+     *
+     * @return
+     */
+    private TextureView obtainTextureView() {
+        TextureView textureView = VideoPlayerManager.getInstance().obtainRecycledTextureView();
+        if (textureView == null || textureView.getContext() != getContext()) {
+            textureView = createTextureView();
+        }
+        return textureView;
+    }
+
+    /**
+     * 将正在显示视频的TextureView移动到目标View中，渲染Surface保持不变，不会重新prepare
+     *
+     * @param target
+     */
+    private void moveTextureViewTo(AbsVideoPlayerView target) {
+        TextureView textureView = VideoPlayerManager.getInstance().getTextureView();
+        if (textureView == null) {
+            textureView = target.obtainTextureView();
+        } else if (textureView.getParent() != null) {
+            ((ViewGroup) textureView.getParent()).removeView(textureView);
+        }
+        target.mVideoTextureViewContainer.addView(textureView);
+        VideoPlayerManager.getInstance().setTextureView(textureView);
+    }
+
     public TextureView createTextureView() {
         //重新为播放器关联TextureView
         TextureView textureView = newTextureView();
@@ -414,7 +499,7 @@ public class AbsVideoPlayerView extends RelativeLayout implements
     public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
         if (fromUser) {
             int seekToTime = seekBar.getProgress() * mDuration / 100;
-            VideoPlayerManager.getInstance().seekTo(seekToTime);
+            VideoPlayerManager.getInstance().scrubTo(seekToTime);
         }
     }
 
@@ -425,7 +510,11 @@ public class AbsVideoPlayerView extends RelativeLayout implements
 
     @Override
     public void onStopTrackingTouch(SeekBar seekBar) {
-
+        if (mDuration <= 0) {
+            return;
+        }
+        int seekToTime = seekBar.getProgress() * mDuration / 100;
+        VideoPlayerManager.getInstance().endScrub(seekToTime);
     }
 
     @Override
@@ -437,9 +526,10 @@ public class AbsVideoPlayerView extends RelativeLayout implements
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
-        Utils.log("attached to window, view hash:" + mViewHash);
-        VideoPlayerManager.getInstance().addObserver(this);
+        VideoPlayerLog.d(VideoPlayerLog.TAG, "attached to window, view hash:%d", mViewHash);
+        registerObserver();
         mToggleFullScreen = false;
+        performAutoPlay();
         if (ScreenViewState.isSmallWindow(mCurrentScreenState)) {
             /***
              * 进入小窗口播放后，视频在列表中原本播放视频的View因滑动进入可视范围从而又重新触发attach window
@@ -453,8 +543,8 @@ public class AbsVideoPlayerView extends RelativeLayout implements
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
-        Utils.log("detached from window, view hash:" + mViewHash);
-        VideoPlayerManager.getInstance().removeObserver(this);
+        VideoPlayerLog.d(VideoPlayerLog.TAG, "detached from window, view hash:%d", mViewHash);
+        unregisterObserver();
         if (mToggleFullScreen) {
             /**
              * 因为全屏播放切换触发detach window不做处理
@@ -491,47 +581,62 @@ public class AbsVideoPlayerView extends RelativeLayout implements
         }
     }
 
-    /************************ 播放状态发生改变时的相关逻辑处理 ********************************/
-    @Override
-    public final void update(Observable o, final Object arg) {
+    private void registerObserver() {
+        if (!mObserverRegistered) {
+            mObserverRegistered = true;
+            VideoPlayerManager.getInstance().addObserver(mViewHash, this);
+        }
+    }
 
-        if (getContext() == null) {
-            return;
+    private void unregisterObserver() {
+        if (mObserverRegistered) {
+            mObserverRegistered = false;
+            VideoPlayerManager.getInstance().removeObserver(mViewHash, this);
         }
-        if (!(arg instanceof Message)) {
+    }
+
+    /**
+     * 修改View的hash，已注册观察者时按新的hash重新注册
+     *
+     * @param viewHash
+     */
+    private void setViewHash(int viewHash) {
+        if (mViewHash == viewHash) {
             return;
         }
-        if (mViewHash != ((Message) arg).getHash() ||
-                !mVideoUrl.equals(((Message) arg).getVideoUrl())) {
-            return;
+        boolean registered = mObserverRegistered;
+        unregisterObserver();
+        mViewHash = viewHash;
+        if (registered) {
+            registerObserver();
         }
+    }
 
-        if (arg instanceof DurationMessage) {
-            ((Activity) getContext()).runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
+    /************************ 播放状态发生改变时的相关逻辑处理 ********************************/
+    @Override
+    public final void onPlayStateMessage(Message message) {
 
-                    onDurationChanged(((DurationMessage) arg).getDuration());
-                }
-            });
+        if (getContext() == null) {
+            return;
+        }
+        //消息已按hash投递，只需确认视频地址
+        if (!mVideoUrl.equals(message.getVideoUrl())) {
             return;
         }
 
-        if (arg instanceof BackPressedMessage) {
-            onBackPressed((BackPressedMessage) arg);
+        if (message instanceof DurationMessage) {
+            onDurationChanged(((DurationMessage) message).getDuration());
             return;
         }
 
-        if (!(arg instanceof UIStateMessage)) {
+        if (message instanceof BackPressedMessage) {
+            onBackPressed((BackPressedMessage) message);
             return;
         }
-        ((Activity) getContext()).runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
 
-                onPlayStateChanged(((UIStateMessage) arg).getState());
-            }
-        });
+        if (message instanceof UIStateMessage) {
+            onPlayStateChanged(((UIStateMessage) message).getState());
+        }
     }
 
     /**
@@ -1068,49 +1173,66 @@ public class AbsVideoPlayerView extends RelativeLayout implements
 
     private static final int PROGRESS_UPDATE_INTERNAL = 300;
     private static final int PROGRESS_UPDATE_INITIAL_INTERVAL = 100;
-    private final ScheduledExecutorService mExecutorService = Executors.newSingleThreadScheduledExecutor();
-    private ScheduledFuture<?> mScheduleFuture;
+    // 小窗口只显示底部进度条，降低刷新频率
+    private static final int PROGRESS_UPDATE_SMALL_WINDOW_INTERNAL = 1000;
 
     /**
-     * 开始更新播放进度
+     * 开始更新播放进度，由全局的{@link ProgressTicker}计时，同一时间只有正在播放的视图更新进度
      */
     private void startVideoProgressUpdate() {
-        stopVideoProgressUpdate();
-        if (!mExecutorService.isShutdown()) {
-            mScheduleFuture = mExecutorService.scheduleAtFixedRate(
-                    new Runnable() {
-                        @Override
-                        public void run() {
-
-                            post(mUpdateProgressTask);
-                        }
-                    }, PROGRESS_UPDATE_INITIAL_INTERVAL,
-                    PROGRESS_UPDATE_INTERNAL, TimeUnit.MILLISECONDS);
-        }
+        ProgressTicker.getInstance().start(mProgressTickListener, PROGRESS_UPDATE_INITIAL_INTERVAL);
     }
 
     /**
      * 停止更新播放进度
      */
     private void stopVideoProgressUpdate() {
-        if (mScheduleFuture != null) {
-            mScheduleFuture.cancel(false);
-        }
+        ProgressTicker.getInstance().stop(mProgressTickListener);
+    }
+
+    /**
+     * 根据屏幕状态获取播放进度的刷新间隔
+     *
+     * @return 单位：ms
+     */
+    protected int getProgressUpdateInterval() {
+        return ScreenViewState.isSmallWindow(mCurrentScreenState)
+                ? PROGRESS_UPDATE_SMALL_WINDOW_INTERNAL : PROGRESS_UPDATE_INTERNAL;
     }
 
-    private final Runnable mUpdateProgressTask = new Runnable() {
+    private final ProgressTicker.OnTickListener mProgressTickListener = new ProgressTicker.OnTickListener() {
         @Override
-        public void run() {
+        public void onTick() {
             int position = VideoPlayerManager.getInstance().getCurrentPosition();
             updateProgress(position);
         }
+
+        @Override
+        public int getTickInterval() {
+            return getProgressUpdateInterval();
+        }
     };
 
+    // 格式化当前播放时间，刷新进度时复用
+    private final VideoTimeFormatter mPlayTimeFormatter = new VideoTimeFormatter();
+
+    /**
+     * 刷新播放进度，只更新发生变化的部分，刷新过程中不产生对象分配
+     *
+     * @param position
+     */
     private void updateProgress(int position) {
         int progress = position * 100 / (mDuration == 0 ? 1 : mDuration);
-        mVideoPlayTimeView.setText(Utils.formatVideoTimeLength(position));
-        mVideoPlaySeekBar.setProgress(progress);
-        mBottomProgressBar.setProgress(progress);
+        if (mPlayTimeFormatter.format(position)) {
+            mVideoPlayTimeView.setText(mPlayTimeFormatter.getBuffer(), 0, mPlayTimeFormatter.getLength());
+        }
+        //进度条可能被用户拖动，与控件当前值比较
+        if (mVideoPlaySeekBar.getProgress() != progress) {
+            mVideoPlaySeekBar.setProgress(progress);
+        }
+        if (mBottomProgressBar.getProgress() != progress) {
+            mBottomProgressBar.setProgress(progress);
+        }
     }
 
     /************************ 全屏播放相关操作 ********************************/
@@ -1165,7 +1287,10 @@ public class AbsVideoPlayerView extends RelativeLayout implements
     public void startFullScreen() {
         mToggleFullScreen = true;
         VideoPlayerManager.getInstance().setScreenState(mCurrentScreenState = ScreenViewState.SCREEN_STATE_FULLSCREEN);
-        VideoPlayerManager.getInstance().pause();
+        boolean seamless = isSeamlessTransition();
+        if (!seamless) {
+            VideoPlayerManager.getInstance().pause();
+        }
 
         ViewGroup windowContent = (ViewGroup) (Utils.getActivity(getContext())).findViewById(Window.ID_ANDROID_CONTENT);
         mVideoWidth = this.getWidth();
@@ -1183,7 +1308,9 @@ public class AbsVideoPlayerView extends RelativeLayout implements
         Utils.getActivity(getContext()).setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_LANDSCAPE);
 
         mVideoFullScreenView.setImageResource(R.drawable.vp_ic_minimize);
-        VideoPlayerManager.getInstance().play();
+        if (!seamless) {
+            VideoPlayerManager.getInstance().play();
+        }
     }
 
     /**
@@ -1195,7 +1322,10 @@ public class AbsVideoPlayerView extends RelativeLayout implements
         }
         mToggleFullScreen = true;
         VideoPlayerManager.getInstance().setScreenState(mCurrentScreenState = ScreenViewState.SCREEN_STATE_NORMAL);
-        VideoPlayerManager.getInstance().pause();
+        boolean seamless = isSeamlessTransition();
+        if (!seamless) {
+            VideoPlayerManager.getInstance().pause();
+        }
 
         ViewGroup windowContent = (ViewGroup) (Utils.getActivity(getContext())).findViewById(Window.ID_ANDROID_CONTENT);
         windowContent.removeView(this);
@@ -1209,11 +1339,20 @@ public class AbsVideoPlayerView extends RelativeLayout implements
         mVideoFullScreenView.setImageResource(R.drawable.vp_ic_fullscreen);
         mOldParent = null;
         mOldIndex = 0;
-        if (mCurrentState != VideoPlayerState.STATE_AUTO_COMPLETE) {
+        if (!seamless && mCurrentState != VideoPlayerState.STATE_AUTO_COMPLETE) {
             VideoPlayerManager.getInstance().play();
         }
     }
 
+    /**
+     * 是否开启了无缝切换，开启时切换全屏不暂停播放，渲染Surface由播放器保留，解码器持续输出
+     *
+     * @return
+     */
+    private boolean isSeamlessTransition() {
+        return VideoPlayerManager.getInstance().getConfig().isSeamlessTransitionEnable();
+    }
+
     /************************ 小窗口播放 ********************************/
 
     /**
@@ -1249,15 +1388,12 @@ public class AbsVideoPlayerView extends RelativeLayout implements
     public void startSmallWindowPlay() {
         stopVideoProgressUpdate();
         VideoPlayerManager.getInstance().setScreenState(mCurrentScreenState = ScreenViewState.SCREEN_STATE_SMALL_WINDOW);
-        AbsVideoPlayerView absVideoPlayerView = new AbsVideoPlayerView(getContext());
-        absVideoPlayerView.setId(R.id.vp_small_window_view_id);
+        AbsVideoPlayerView absVideoPlayerView = obtainSmallWindowView();
         absVideoPlayerView.mDuration = mDuration;
         absVideoPlayerView.mVideoUrl = mVideoUrl;
-        absVideoPlayerView.mViewHash = mViewHash;
+        absVideoPlayerView.setViewHash(mViewHash);
         absVideoPlayerView.mShowNormalStateTitleView = mShowNormalStateTitleView;
-        TextureView textureView = absVideoPlayerView.createTextureView();
-        absVideoPlayerView.mVideoTextureViewContainer.addView(textureView);
-        VideoPlayerManager.getInstance().setTextureView(textureView);
+        moveTextureViewTo(absVideoPlayerView);
 
         ViewGroup windowContent = (ViewGroup) (Utils.getActivity(getContext())).findViewById(Window.ID_ANDROID_CONTENT);
         FrameLayout.LayoutParams lp = new FrameLayout.LayoutParams(mSmallWindowWidth, mSmallWindowHeight);
@@ -1276,6 +1412,26 @@ public class AbsVideoPlayerView extends RelativeLayout implements
         absVideoPlayerView.onPlayStateChanged(mCurrentState);
     }
 
+    /**
+     * 获取小窗口View，开启无缝切换时复用上次的小窗口View
+     *
+     * @return
+     */
+    private AbsVideoPlayerView obtainSmallWindowView() {
+        AbsVideoPlayerView smallWindowView = mSmallWindowView;
+        if (smallWindowView == null || smallWindowView.getParent() != null || !isSeamlessTransition()) {
+            smallWindowView = new AbsVideoPlayerView(getContext());
+            smallWindowView.setId(R.id.vp_small_window_view_id);
+            if (isSeamlessTransition()) {
+                mSmallWindowView = smallWindowView;
+            }
+        } else {
+            //上次退出时保留了小窗口状态，添加到Window前重置，否则attach window时会立刻退出小窗口
+            smallWindowView.mCurrentScreenState = ScreenViewState.SCREEN_STATE_NORMAL;
+        }
+        return smallWindowView;
+    }
+
     /**
      * 退出小窗口播放
      *
@@ -1290,25 +1446,23 @@ public class AbsVideoPlayerView extends RelativeLayout implements
         AbsVideoPlayerView smallWindowView = (AbsVideoPlayerView) windowContent.findViewById(R.id.vp_small_window_view_id);
         smallWindowView.stopVideoProgressUpdate();
         VideoPlayerManager.getInstance().setScreenState(mCurrentScreenState = ScreenViewState.SCREEN_STATE_NORMAL);
-        VideoPlayerManager.getInstance().setTextureView(null);
-        smallWindowView.mVideoTextureViewContainer.removeAllViews();
 
         mDuration = smallWindowView.mDuration;
         mVideoUrl = smallWindowView.mVideoUrl;
-        mViewHash = smallWindowView.mViewHash;
+        setViewHash(smallWindowView.mViewHash);
         mCurrentState = smallWindowView.mCurrentState;
         mShowNormalStateTitleView = smallWindowView.mShowNormalStateTitleView;
 
         if (forceStop) {
+            VideoPlayerManager.getInstance().setTextureView(null);
+            smallWindowView.mVideoTextureViewContainer.removeAllViews();
             VideoPlayerManager.getInstance().stop();
             windowContent.removeView(smallWindowView);
         } else {
 
             windowContent.removeView(smallWindowView);
 
-            TextureView textureView = createTextureView();
-            mVideoTextureViewContainer.addView(textureView);
-            VideoPlayerManager.getInstance().setTextureView(textureView);
+            moveTextureViewTo(this);
 
             onPlayStateChanged(mCurrentState);
         }
@@ -1429,7 +1583,9 @@ public class AbsVideoPlayerView extends RelativeLayout implements
                 }
                 float xDis = Math.abs(mTouchDownX - event.getRawX());
                 float yDis = Math.abs(event.getRawY() - mTouchDownY);
-                Utils.logTouch("TouchSlop:" + mTouchSlop + ", xDis:" + xDis + ", yDis:" + yDis);
+                if (VideoPlayerLog.isLoggable(Log.DEBUG)) {
+                    Utils.logTouch("TouchSlop:" + mTouchSlop + ", xDis:" + xDis + ", yDis:" + yDis);
+                }
                 if (isFlingLeft(mTouchDownX, mTouchDownY, event)) {//向左滑，退后
                     hideFullScreenTouchStateView();
                     Utils.logTouch("Fling Left");
@@ -1465,7 +1621,7 @@ public class AbsVideoPlayerView extends RelativeLayout implements
                 switch (mCurrentGestureState) {
                     case GestureTouchState.STATE_VIDEO_PROGRESS:
                         if (mGestureSeekToPosition != -1) {
-                            VideoPlayerManager.getInstance().seekTo(mGestureSeekToPosition);
+                            VideoPlayerManager.getInstance().endScrub(mGestureSeekToPosition);
                             mGestureSeekToPosition = -1;
                             Utils.hideViewIfNeed(mVideoChangeProgressView);
                             showFullScreenTouchStateView();
@@ -1674,6 +1830,8 @@ public class AbsVideoPlayerView extends RelativeLayout implements
         mVideoChangeProgressCurrPro.setText(Utils.formatVideoTimeLength(mGestureSeekToPosition));
         mVideoChangeProgressTotal.setText("/" + Utils.formatVideoTimeLength(mDuration));
         mVideoChangeProgressBar.setProgress((int) (mGestureSeekToPosition * 1.0f / mDuration * TOTAL_PERCENT + 0.5f));
+        //拖动中预览画面，松手时再精确跳转
+        VideoPlayerManager.getInstance().scrubTo(mGestureSeekToPosition);
     }
 
     private boolean isFlingRight(float downX, float downY, MotionEvent e2) {
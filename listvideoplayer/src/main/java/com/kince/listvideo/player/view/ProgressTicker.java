@@ -0,0 +1,110 @@
+package com.kince.listvideo.player.view;
+
+import android.view.Choreographer;
+
+/**
+ * Created by Kince
+ *
+ * 全局唯一的播放进度时钟，由{@link Choreographer}驱动，保证进度刷新与屏幕刷新对齐
+ *
+ * 同一时间只为一个监听者（即正在播放的视图）计时，新的监听者开始计时后原监听者自动停止，
+ * 每次计时后向监听者获取下一次的计时间隔，从而可以根据屏幕状态调整刷新频率
+ *
+ * 所有方法均需在主线程调用
+ */
+final class ProgressTicker implements Choreographer.FrameCallback {
+
+    interface OnTickListener {
+
+        /**
+         * 计时到达
+         */
+        void onTick();
+
+        /**
+         * @return 下一次计时的间隔，单位：ms
+         */
+        int getTickInterval();
+
+    }
+
+    private static ProgressTicker sInstance;
+
+    private OnTickListener mListener;
+    // 下一次计时的时间，基于System.nanoTime()
+    private long mNextTickTimeNanos;
+    private boolean mScheduled;
+
+    static ProgressTicker getInstance() {
+        if (sInstance == null) {
+            sInstance = new ProgressTicker();
+        }
+        return sInstance;
+    }
+
+    private ProgressTicker() {
+    }
+
+    /**
+     * 开始为监听者计时，会停止正在进行的计时
+     *
+     * @param listener
+     * @param initialDelay 首次计时的延时，单位：ms
+     */
+    void start(OnTickListener listener, int initialDelay) {
+        mListener = listener;
+        mNextTickTimeNanos = System.nanoTime() + initialDelay * 1000000L;
+        unschedule();
+        schedule(initialDelay);
+    }
+
+    /**
+     * 停止为监听者计时，监听者不是当前计时的监听者时忽略
+     *
+     * @param listener
+     */
+    void stop(OnTickListener listener) {
+        if (mListener != listener) {
+            return;
+        }
+        mListener = null;
+        unschedule();
+    }
+
+    boolean isTicking(OnTickListener listener) {
+        return listener != null && mListener == listener;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mScheduled = false;
+        OnTickListener listener = mListener;
+        if (listener == null) {
+            return;
+        }
+        if (frameTimeNanos >= mNextTickTimeNanos) {
+            listener.onTick();
+            if (mListener != listener) {
+                //回调中停止或切换了监听者
+                return;
+            }
+            mNextTickTimeNanos = frameTimeNanos + listener.getTickInterval() * 1000000L;
+        }
+        schedule((mNextTickTimeNanos - frameTimeNanos) / 1000000L);
+    }
+
+    private void schedule(long delayMillis) {
+        if (!mScheduled) {
+            mScheduled = true;
+            Choreographer.getInstance().postFrameCallbackDelayed(this, Math.max(0, delayMillis));
+        }
+    }
+
+    private void unschedule() {
+        if (mScheduled) {
+            mScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+}
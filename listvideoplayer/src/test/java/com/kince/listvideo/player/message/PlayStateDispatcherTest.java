@@ -0,0 +1,96 @@
+package com.kince.listvideo.player.message;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by Kince
+ *
+ * {@link PlayStateDispatcher}按hash投递消息的测试
+ */
+public class PlayStateDispatcherTest {
+
+    private static final int HASH_A = 1001;
+    private static final int HASH_B = 1002;
+    private static final String URL = "http://example.com/video.mp4";
+
+    private PlayStateDispatcher mDispatcher;
+
+    @Before
+    public void setUp() throws Exception {
+        mDispatcher = new PlayStateDispatcher(Thread.currentThread());
+    }
+
+    @Test
+    public void messageIsOnlyDeliveredToObserversOfTheSameHash() throws Exception {
+        RecordingObserver observerA = new RecordingObserver();
+        RecordingObserver observerB = new RecordingObserver();
+        mDispatcher.addObserver(HASH_A, observerA);
+        mDispatcher.addObserver(HASH_B, observerB);
+
+        mDispatcher.dispatchUIState(HASH_A, URL, 2);
+        mDispatcher.dispatchDuration(HASH_A, URL, 60000);
+        mDispatcher.dispatchBackPressed(HASH_A, URL, 1);
+
+        assertEquals(3, observerA.hashes.size());
+        for (int hash : observerA.hashes) {
+            assertEquals(HASH_A, hash);
+        }
+        assertTrue(observerB.hashes.isEmpty());
+    }
+
+    @Test
+    public void removedObserverReceivesNothing() throws Exception {
+        RecordingObserver observer = new RecordingObserver();
+        mDispatcher.addObserver(HASH_A, observer);
+        mDispatcher.removeObserver(HASH_A, observer);
+
+        mDispatcher.dispatchUIState(HASH_A, URL, 2);
+
+        assertTrue(observer.hashes.isEmpty());
+    }
+
+    @Test
+    public void legacyObserverReceivesAllMessages() throws Exception {
+        final List<Message> messages = new ArrayList<>();
+        Observer observer = new Observer() {
+            @Override
+            public void update(Observable o, Object arg) {
+                messages.add((Message) arg);
+            }
+        };
+        mDispatcher.addLegacyObserver(observer);
+
+        mDispatcher.dispatchUIState(HASH_A, URL, 2);
+        mDispatcher.dispatchUIState(HASH_B, URL, 4);
+
+        assertEquals(2, messages.size());
+        assertEquals(HASH_A, messages.get(0).getHash());
+        assertEquals(2, ((UIStateMessage) messages.get(0)).getState());
+        assertEquals(HASH_B, messages.get(1).getHash());
+
+        mDispatcher.removeLegacyObserver(observer);
+        mDispatcher.dispatchUIState(HASH_A, URL, 2);
+        assertEquals(2, messages.size());
+    }
+
+    private static final class RecordingObserver implements IPlayStateObserver {
+
+        final List<Integer> hashes = new ArrayList<>();
+
+        @Override
+        public void onPlayStateMessage(Message message) {
+            hashes.add(message.getHash());
+        }
+
+    }
+
+}
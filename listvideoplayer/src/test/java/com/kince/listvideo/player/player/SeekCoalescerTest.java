@@ -0,0 +1,139 @@
+package com.kince.listvideo.player.player;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by Kince
+ *
+ * {@link SeekCoalescer}合并拖动seek的测试，时钟与延时执行由{@link FakeScheduler}手动推进
+ */
+public class SeekCoalescerTest {
+
+    private FakeScheduler mScheduler;
+    private RecordingTarget mTarget;
+    private SeekCoalescer mCoalescer;
+
+    @Before
+    public void setUp() throws Exception {
+        mScheduler = new FakeScheduler(1000);
+        mTarget = new RecordingTarget();
+        mCoalescer = new SeekCoalescer(mTarget, mScheduler);
+    }
+
+    @Test
+    public void latestPositionWinsWithinWindow() throws Exception {
+        mCoalescer.scrubTo(100);
+        //距上次seek已超过一帧，立即执行
+        assertEquals("100:false", mTarget.seeks());
+
+        mScheduler.advance(5);
+        mCoalescer.scrubTo(200);
+        mScheduler.advance(5);
+        mCoalescer.scrubTo(300);
+        mCoalescer.scrubTo(400);
+        assertEquals("100:false", mTarget.seeks());
+
+        mScheduler.advance(6);
+        assertEquals("100:false,400:false", mTarget.seeks());
+        assertTrue(mCoalescer.isScrubbing());
+
+        mScheduler.advance(100);
+        assertEquals("100:false,400:false", mTarget.seeks());
+    }
+
+    @Test
+    public void endScrubCancelsPendingSeekAndSeeksExactlyOnce() throws Exception {
+        mCoalescer.scrubTo(100);
+        mScheduler.advance(5);
+        mCoalescer.scrubTo(200);
+
+        mCoalescer.endScrub(250);
+        assertEquals("100:false,250:true", mTarget.seeks());
+        assertFalse(mCoalescer.isScrubbing());
+
+        mScheduler.advance(100);
+        assertEquals("100:false,250:true", mTarget.seeks());
+    }
+
+    private static final class RecordingTarget implements SeekCoalescer.Target {
+
+        private final List<String> mSeeks = new ArrayList<>();
+
+        @Override
+        public void seek(int position, boolean exact) {
+            mSeeks.add(position + ":" + exact);
+        }
+
+        String seeks() {
+            StringBuilder builder = new StringBuilder();
+            for (String seek : mSeeks) {
+                if (builder.length() > 0) {
+                    builder.append(',');
+                }
+                builder.append(seek);
+            }
+            return builder.toString();
+        }
+
+    }
+
+    private static final class FakeScheduler implements SeekCoalescer.Scheduler {
+
+        private final List<Runnable> mRunnables = new ArrayList<>();
+        private final List<Long> mDueTimes = new ArrayList<>();
+        private long mNow;
+
+        FakeScheduler(long now) {
+            mNow = now;
+        }
+
+        @Override
+        public long uptimeMillis() {
+            return mNow;
+        }
+
+        @Override
+        public void postDelayed(Runnable runnable, long delayMs) {
+            mRunnables.add(runnable);
+            mDueTimes.add(mNow + delayMs);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable runnable) {
+            for (int i = mRunnables.size() - 1; i >= 0; i--) {
+                if (mRunnables.get(i) == runnable) {
+                    mRunnables.remove(i);
+                    mDueTimes.remove(i);
+                }
+            }
+        }
+
+        /**
+         * 推进时钟并执行到期的任务
+         *
+         * @param ms
+         */
+        void advance(long ms) {
+            mNow += ms;
+            for (int i = 0; i < mRunnables.size(); ) {
+                if (mDueTimes.get(i) <= mNow) {
+                    Runnable runnable = mRunnables.remove(i);
+                    mDueTimes.remove(i);
+                    runnable.run();
+                } else {
+                    i++;
+                }
+            }
+        }
+
+    }
+
+}
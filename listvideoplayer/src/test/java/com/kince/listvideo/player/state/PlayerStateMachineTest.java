@@ -0,0 +1,87 @@
+package com.kince.listvideo.player.state;
+
+import org.junit.Test;
+
+import static com.kince.listvideo.player.state.VideoPlayerState.STATE_AUTO_COMPLETE;
+import static com.kince.listvideo.player.state.VideoPlayerState.STATE_ERROR;
+import static com.kince.listvideo.player.state.VideoPlayerState.STATE_LOADING;
+import static com.kince.listvideo.player.state.VideoPlayerState.STATE_NORMAL;
+import static com.kince.listvideo.player.state.VideoPlayerState.STATE_PAUSE;
+import static com.kince.listvideo.player.state.VideoPlayerState.STATE_PLAYING;
+import static com.kince.listvideo.player.state.VideoPlayerState.STATE_PLAYING_BUFFERING_START;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by Kince
+ *
+ * {@link PlayerStateMachine}迁移规则测试
+ */
+public class PlayerStateMachineTest {
+
+    @Test
+    public void anyStateCanReloadStopOrFail() {
+        for (int from = STATE_NORMAL; from <= STATE_ERROR; from++) {
+            if (from != STATE_LOADING) {
+                assertTrue(PlayerStateMachine.isValidTransition(from, STATE_LOADING));
+            }
+            if (from != STATE_NORMAL) {
+                assertTrue(PlayerStateMachine.isValidTransition(from, STATE_NORMAL));
+            }
+            if (from != STATE_ERROR) {
+                assertTrue(PlayerStateMachine.isValidTransition(from, STATE_ERROR));
+            }
+        }
+    }
+
+    @Test
+    public void sameStateIsNotATransition() {
+        for (int state = STATE_NORMAL; state <= STATE_ERROR; state++) {
+            assertFalse(PlayerStateMachine.isValidTransition(state, state));
+        }
+    }
+
+    @Test
+    public void playbackTransitions() {
+        assertTrue(PlayerStateMachine.isValidTransition(STATE_LOADING, STATE_PLAYING));
+        assertTrue(PlayerStateMachine.isValidTransition(STATE_PLAYING, STATE_PAUSE));
+        assertTrue(PlayerStateMachine.isValidTransition(STATE_PAUSE, STATE_PLAYING));
+        assertTrue(PlayerStateMachine.isValidTransition(STATE_PLAYING, STATE_PLAYING_BUFFERING_START));
+        assertTrue(PlayerStateMachine.isValidTransition(STATE_PLAYING_BUFFERING_START, STATE_PLAYING));
+        assertTrue(PlayerStateMachine.isValidTransition(STATE_PLAYING, STATE_AUTO_COMPLETE));
+    }
+
+    @Test
+    public void replayAfterComplete() {
+        assertTrue(PlayerStateMachine.isValidTransition(STATE_AUTO_COMPLETE, STATE_PLAYING));
+        assertTrue(PlayerStateMachine.isValidTransition(STATE_AUTO_COMPLETE, STATE_PLAYING_BUFFERING_START));
+        assertFalse(PlayerStateMachine.isValidTransition(STATE_AUTO_COMPLETE, STATE_PAUSE));
+    }
+
+    @Test
+    public void invalidTransitions() {
+        assertFalse(PlayerStateMachine.isValidTransition(STATE_NORMAL, STATE_PLAYING));
+        assertFalse(PlayerStateMachine.isValidTransition(STATE_NORMAL, STATE_PAUSE));
+        assertFalse(PlayerStateMachine.isValidTransition(STATE_ERROR, STATE_PLAYING));
+        assertFalse(PlayerStateMachine.isValidTransition(-1, STATE_PLAYING));
+        assertFalse(PlayerStateMachine.isValidTransition(STATE_PLAYING, STATE_ERROR + 1));
+    }
+
+    @Test
+    public void transitionToRejectsInvalidAndRepeatedTransitions() {
+        PlayerStateMachine machine = new PlayerStateMachine();
+        assertEquals(STATE_NORMAL, machine.get());
+
+        assertFalse(machine.transitionTo(STATE_PLAYING));
+        assertEquals(STATE_NORMAL, machine.get());
+
+        assertTrue(machine.transitionTo(STATE_LOADING));
+        assertTrue(machine.transitionTo(STATE_PLAYING));
+        assertFalse(machine.transitionTo(STATE_PLAYING));
+        assertTrue(machine.transitionTo(STATE_AUTO_COMPLETE));
+        assertTrue(machine.transitionTo(STATE_PLAYING));
+        assertEquals(STATE_PLAYING, machine.get());
+    }
+
+}
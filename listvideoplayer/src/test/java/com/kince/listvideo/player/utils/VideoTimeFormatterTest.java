@@ -0,0 +1,35 @@
+package com.kince.listvideo.player.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link VideoTimeFormatter}的正确性校验，格式化结果需与{@link Utils#formatVideoTimeLength(long)}一致
+ */
+public class VideoTimeFormatterTest {
+
+    @Test
+    public void formatMatchesUtils() throws Exception {
+        char[] buffer = new char[16];
+        long[] samples = {0, 999, 1000, 9000, 59999, 60000, 61000, 599000, 3599000, 3600000,
+                36000000, 359999000, 360000000};
+        for (long sample : samples) {
+            int length = VideoTimeFormatter.format(sample, buffer);
+            assertEquals(Utils.formatVideoTimeLength(sample), new String(buffer, 0, length));
+        }
+    }
+
+    @Test
+    public void formatSkipsUnchangedSecond() throws Exception {
+        VideoTimeFormatter formatter = new VideoTimeFormatter();
+        assertTrue(formatter.format(1000));
+        assertFalse(formatter.format(1900));
+        assertTrue(formatter.format(2000));
+        formatter.reset();
+        assertTrue(formatter.format(2000));
+    }
+
+}